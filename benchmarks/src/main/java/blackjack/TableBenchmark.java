@@ -0,0 +1,75 @@
+package blackjack;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time per operation of the table's hot paths by number of players, each case in its own forked JVMs.
+// Returned values go to JMH's blackhole, so the JIT cannot drop the work.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class TableBenchmark {
+
+	@Param({ "1", "2", "3", "4", "5", "6" })
+	public int players;
+
+	private Blackjack.HotPaths paths;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		paths = new Blackjack.HotPaths(players);
+	}
+
+	@Benchmark
+	public long shuffle() {
+		return paths.shuffle();
+	}
+
+	@Benchmark
+	public long draw() {
+		return paths.draw();
+	}
+
+	@Benchmark
+	public long deal() {
+		return paths.deal();
+	}
+
+	@Benchmark
+	public long handValue() {
+		return paths.handValue();
+	}
+
+	@Benchmark
+	public long isBlackjack() {
+		return paths.isBlackjack();
+	}
+
+	@Benchmark
+	public long payOutWins() {
+		return paths.payOutWins();
+	}
+
+	// Full headless rounds per second
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public long round() {
+		return paths.round();
+	}
+}
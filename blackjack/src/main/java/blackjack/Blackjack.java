@@ -0,0 +1,5437 @@
+package blackjack;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Scanner;
+import java.util.Iterator;
+import java.util.zip.CRC32;
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.net.InetSocketAddress;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+Idea de modificación:
+
+No hardcodear los valores y palos, sino dejar que le usuario los defina como quiera de modo
+que pueda crear cartas del valor y palo que quiera (por ejemplo 15 de Mariposas).
+
+Modificar la clase Deck de forma el usuario pueda pasar directamente:
+a) el conjunto de todas las cartas, previamente definidas
+b) un conjunto de valores posibles y palos posibles y crear el mazo con esta información
+
+Ejemplo:
+
+Rank[] ranks = { new Rank("As", 1), new Rank("Dos", 2), ..., new Rank("Rey", 12) };
+Suit[] suits = { new Suit("Oros"), new Suit("Sotas"), new Suit("Espadas"), new Suit("Bastos") };
+
+Deck spanish_deck = new Deck(suits, ranks);
+
+*/
+
+public class Blackjack {
+
+	public static String capitalizeFirstLetter(String str) {
+		return str.substring(0, 1).toUpperCase() + str.substring(1).toLowerCase();
+	}
+
+	public static class Rank {
+
+		private int value;
+		private static final String[] string_values = {
+			"Ace",
+			"Two",
+			"Three",
+			"Four",
+			"Five",
+			"Six",
+			"Seven",
+			"Eight",
+			"Nine",
+			"Ten",
+			"Jack",
+			"Queen",
+			"King"
+		};
+		private static final Rank[] ranks = new Rank[string_values.length];
+
+		static {
+			for (int i = 0; i < ranks.length; i++) {
+				ranks[i] = new Rank(i + 1);
+			}
+		}
+
+		public Rank(int value) throws IllegalArgumentException {
+			if (value < 1 || value > 13) {
+				throw new IllegalArgumentException("Invalid card value (must be between 1 and 13).");
+			}
+			this.value = value;
+		}
+
+		public Rank(String value) throws IllegalArgumentException {
+			int i = 0;
+			String r = capitalizeFirstLetter(value);
+
+			while (i < string_values.length && !r.equals(string_values[i])) {
+				i++;
+			}
+
+			if (i == string_values.length) {
+				throw new IllegalArgumentException("Invalid card rank.");
+			} else {
+				this.value = i + 1;
+			}
+		}
+
+		public static Rank of(int value) throws IllegalArgumentException {
+			if (value < 1 || value > 13) {
+				throw new IllegalArgumentException("Invalid card value (must be between 1 and 13).");
+			}
+			return ranks[value - 1];
+		}
+
+		public int getValue() {
+			return value;
+		}
+
+		public boolean isAce() {
+			return value == 1;
+		}
+
+		public String toString() {
+			return string_values[value - 1];
+		}
+
+		public String simpleString() {
+			String str = new String();
+			
+			if (value == 1) {
+				str += "A";
+			} else if (value > 10) {
+				if (value == 11) {
+					str += "J";
+				} else if (value == 12) {
+					str += "Q";
+				} else {
+					str += "K";
+				}
+			} else {
+				str += value;
+			}
+			return str;
+		}
+	}
+
+	public static class Suit {
+
+		private int index;
+		private static final String[] string_names = {
+			"Hearts",
+			"Diamonds",
+			"Clubs",
+			"Spades"
+		};
+		private static final String[] symbols = {
+			"\u2665",
+			"\u2666",
+			"\u2663",
+			"\u2660"
+		};
+		private static final Suit[] suits = new Suit[string_names.length];
+
+		static {
+			for (int i = 0; i < suits.length; i++) {
+				suits[i] = new Suit(string_names[i]);
+			}
+		}
+
+		public Suit(String name) throws IllegalArgumentException {
+			int i = 0;
+			String n = capitalizeFirstLetter(name);
+
+			while (i < string_names.length && !n.equals(string_names[i])) {
+				i++;
+			}
+
+			if (i == string_names.length) {
+				throw new IllegalArgumentException("Invalid suit name.");
+			} else {
+				this.index = i;
+			}
+		}
+
+		public static Suit of(int index) throws IllegalArgumentException {
+			if (index < 0 || index >= suits.length) {
+				throw new IllegalArgumentException("Invalid suit index (must be between 0 and 3).");
+			}
+			return suits[index];
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public String toString() {
+			return string_names[index];
+		}
+
+		public String symbolString() {
+			return symbols[index];
+		}
+	}
+
+	// A card is a single byte: rank (1-13) in the low four bits and suit index (0-3) in the next two.
+	// Card objects are only a view over that code, and Card.of() hands out one shared instance per code.
+	public static class Card {
+
+		public static final int RANK_MASK = 0x0F;
+		public static final int SUIT_SHIFT = 4;
+		public static final int CODES = 4 << SUIT_SHIFT;
+
+		private static final Card[] cards = new Card[CODES];
+
+		static {
+			for (int suit = 0; suit < 4; suit++) {
+				for (int rank = 1; rank <= 13; rank++) {
+					int code = encode(rank, suit);
+					cards[code] = new Card((byte) code);
+				}
+			}
+		}
+
+		private final byte code;
+
+		private Card(byte code) {
+			this.code = code;
+		}
+
+		public Card(Rank rank, Suit suit) {
+			this.code = (byte) encode(rank.getValue(), suit.getIndex());
+		}
+
+		public Card(int rank, String suit) {
+			this(Rank.of(rank), new Suit(suit));
+		}
+
+		public Card(String rank, String suit) {
+			this(new Rank(rank), new Suit(suit));
+		}
+
+		public static int encode(int rank, int suit) {
+			return (suit << SUIT_SHIFT) | rank;
+		}
+
+		public static int rank(int code) {
+			return code & RANK_MASK;
+		}
+
+		public static int suit(int code) {
+			return code >> SUIT_SHIFT;
+		}
+
+		public static Card of(int code) throws IllegalArgumentException {
+			Card card = code >= 0 && code < CODES ? cards[code] : null;
+			if (card == null) {
+				throw new IllegalArgumentException("Invalid card code (" + code + ").");
+			}
+			return card;
+		}
+
+		// The 52 codes of a standard deck, suit by suit
+		public static byte[] standardDeck() {
+			byte[] codes = new byte[52];
+			int n = 0;
+			for (int suit = 0; suit < 4; suit++) {
+				for (int rank = 1; rank <= 13; rank++) {
+					codes[n++] = (byte) encode(rank, suit);
+				}
+			}
+			return codes;
+		}
+
+		public byte code() {
+			return code;
+		}
+
+		public int rank() {
+			return code & RANK_MASK;
+		}
+
+		public boolean isAce() {
+			return (code & RANK_MASK) == 1;
+		}
+
+		// Blackjack points with aces counted as 1; hands work out soft totals themselves
+		public static int points(int code) {
+			int rank = code & RANK_MASK;
+			return rank > 10 ? 10 : rank;
+		}
+
+		public int points() {
+			return points(code);
+		}
+
+		public Rank getRank() {
+			return Rank.of(rank());
+		}
+
+		public Suit getSuit() {
+			return Suit.of(suit(code));
+		}
+
+		public boolean equals(Object other) {
+			return other instanceof Card && ((Card) other).code == code;
+		}
+
+		public int hashCode() {
+			return code;
+		}
+
+		public String toString() {
+			Rank rank = getRank();
+			Suit suit = getSuit();
+			String str = rank.simpleString() + suit.symbolString() + " " + rank + " of " + suit;
+			return str;
+		}
+	}
+
+	public static interface Rng {
+
+		public long nextLong();
+
+		// Uniform in [0, bound)
+		public int nextInt(int bound);
+
+		// Independent generator for another stream; the result only depends on this generator's state
+		public Rng split();
+	}
+
+	public static class SplittableRng implements Rng {
+
+		private SplittableRandom random;
+
+		public SplittableRng() {
+			random = new SplittableRandom();
+		}
+
+		public SplittableRng(long seed) {
+			random = new SplittableRandom(seed);
+		}
+
+		private SplittableRng(SplittableRandom random) {
+			this.random = random;
+		}
+
+		public long nextLong() {
+			return random.nextLong();
+		}
+
+		public int nextInt(int bound) {
+			return random.nextInt(bound);
+		}
+
+		public Rng split() {
+			return new SplittableRng(random.split());
+		}
+	}
+
+	// xoshiro256** by Blackman and Vigna, seeded through SplitMix64. split() seeds the new generator
+	// from four outputs of this one run through SplitMix64. Jumping ahead 2^128 steps instead keeps a
+	// single chain of splits apart, but in a tree of splits two paths land on the same state.
+	public static class XoshiroRng implements Rng {
+
+		private long s0, s1, s2, s3;
+
+		public XoshiroRng(long seed) {
+			s0 = splitMix(seed += 0x9e3779b97f4a7c15L);
+			s1 = splitMix(seed += 0x9e3779b97f4a7c15L);
+			s2 = splitMix(seed += 0x9e3779b97f4a7c15L);
+			s3 = splitMix(seed += 0x9e3779b97f4a7c15L);
+		}
+
+		private XoshiroRng(long s0, long s1, long s2, long s3) {
+			this.s0 = s0;
+			this.s1 = s1;
+			this.s2 = s2;
+			this.s3 = s3;
+		}
+
+		private static long splitMix(long z) {
+			z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+			z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+			return z ^ (z >>> 31);
+		}
+
+		public long nextLong() {
+			long result = Long.rotateLeft(s1 * 5, 7) * 9;
+			long t = s1 << 17;
+
+			s2 ^= s0;
+			s3 ^= s1;
+			s1 ^= s2;
+			s0 ^= s3;
+			s2 ^= t;
+			s3 = Long.rotateLeft(s3, 45);
+			return result;
+		}
+
+		// Lemire's multiply-and-shift, rejecting the few values that would bias the result
+		public int nextInt(int bound) throws IllegalArgumentException {
+			if (bound <= 0) {
+				throw new IllegalArgumentException("Bound must be positive.");
+			}
+			long m = (nextLong() >>> 32) * bound;
+			long low = m & 0xFFFFFFFFL;
+
+			if (low < bound) {
+				long threshold = (0x100000000L - bound) % bound;
+				while (low < threshold) {
+					m = (nextLong() >>> 32) * bound;
+					low = m & 0xFFFFFFFFL;
+				}
+			}
+			return (int) (m >>> 32);
+		}
+
+		public Rng split() {
+			return new XoshiroRng(splitMix(nextLong()), splitMix(nextLong()), splitMix(nextLong()), splitMix(nextLong()));
+		}
+
+		private static int snapshotSize() {
+			return 32;
+		}
+
+		private void save(ByteBuffer buffer) {
+			buffer.putLong(s0).putLong(s1).putLong(s2).putLong(s3);
+		}
+
+		private void restore(ByteBuffer buffer) {
+			s0 = buffer.getLong();
+			s1 = buffer.getLong();
+			s2 = buffer.getLong();
+			s3 = buffer.getLong();
+		}
+	}
+
+	// Not reproducible: it cannot be seeded, and split() returns the same per-thread source
+	public static class ThreadLocalRng implements Rng {
+
+		public long nextLong() {
+			return ThreadLocalRandom.current().nextLong();
+		}
+
+		public int nextInt(int bound) {
+			return ThreadLocalRandom.current().nextInt(bound);
+		}
+
+		public Rng split() {
+			return this;
+		}
+	}
+
+	// Card counting systems the shoe keeps running counts for
+	public static enum CountSystem { HI_LO, KO, OMEGA_II };
+
+	// Array-backed shoe of one or more decks. The undealt cards are cards[0, size) and draw() takes
+	// from the top, so drawing and returning cards never touches anything but the cursor.
+	// Every draw also updates the undealt cards per rank and the running counts, so all the counting
+	// getters are O(1).
+	public static class Shoe {
+
+		// Tags by rank, ace first
+		private static final int[] HI_LO_TAGS = { 0, -1, 1, 1, 1, 1, 1, 0, 0, 0, -1, -1, -1, -1 };
+		private static final int[] KO_TAGS = { 0, -1, 1, 1, 1, 1, 1, 1, 0, 0, -1, -1, -1, -1 };
+		private static final int[] OMEGA_II_TAGS = { 0, 0, 1, 1, 2, 2, 2, 1, 0, -1, -2, -2, -2, -2 };
+
+		private byte[] cards;
+		private int size;
+		private int decks;
+		private double penetration;
+		private int cutCard;
+		private Rng rng;
+		private int[] ranks = new int[14];
+		private int hiLo;
+		private int ko;
+		private int omegaII;
+		private long drawn;
+		// A new shoe is in factory order until it is first shuffled
+		private boolean shuffled;
+
+		public Shoe(int decks, double penetration) throws IllegalArgumentException {
+			this(decks, penetration, new SplittableRng());
+		}
+
+		public Shoe(int decks, double penetration, Rng rng) throws IllegalArgumentException {
+			if (decks < 1) {
+				throw new IllegalArgumentException("Number of decks must be at least 1.");
+			}
+			if (penetration < 0 || penetration > 1) {
+				throw new IllegalArgumentException("Penetration must be between 0 and 1.");
+			}
+			this.decks = decks;
+			this.penetration = penetration;
+			byte[] deck = Card.standardDeck();
+			cards = new byte[decks * deck.length];
+			for (int i = 0; i < decks; i++) {
+				System.arraycopy(deck, 0, cards, i * deck.length, deck.length);
+			}
+			size = cards.length;
+			cutCard = cards.length - (int) Math.round(cards.length * penetration);
+			this.rng = rng;
+			recount();
+		}
+
+		// Counts start from a full shoe: 0 for the balanced systems, 4 - 4 * decks for KO. Cards that
+		// are not in the shoe when it is recounted, such as those still on the table, count as seen.
+		private void recount() {
+			Arrays.fill(ranks, 0);
+			for (int i = 0; i < size; i++) {
+				ranks[cards[i] & Card.RANK_MASK]++;
+			}
+			hiLo = seen(HI_LO_TAGS);
+			ko = 4 - 4 * decks + seen(KO_TAGS);
+			omegaII = seen(OMEGA_II_TAGS);
+		}
+
+		private int seen(int[] tags) {
+			int count = 0;
+			for (int rank = 1; rank <= 13; rank++) {
+				count += tags[rank] * (4 * decks - ranks[rank]);
+			}
+			return count;
+		}
+
+		public int getDecks() {
+			return decks;
+		}
+
+		public double getPenetration() {
+			return penetration;
+		}
+
+		public Rng getRng() {
+			return rng;
+		}
+
+		public void setRng(Rng rng) {
+			this.rng = rng;
+		}
+
+		public void shuffle() {
+			for (int i = size - 1; i > 0; i--) {
+				int j = rng.nextInt(i + 1);
+				byte card = cards[i];
+				cards[i] = cards[j];
+				cards[j] = card;
+			}
+			shuffled = true;
+			recount();
+		}
+
+		public boolean isShuffled() {
+			return shuffled;
+		}
+
+		public void add(Card card) {
+			if (size == cards.length) {
+				cards = Arrays.copyOf(cards, 2 * cards.length);
+			}
+			int code = card.code();
+			cards[size++] = (byte) code;
+
+			int rank = code & Card.RANK_MASK;
+			ranks[rank]++;
+			hiLo -= HI_LO_TAGS[rank];
+			ko -= KO_TAGS[rank];
+			omegaII -= OMEGA_II_TAGS[rank];
+		}
+
+		public void add(List<Card> cards) {
+			for (int i = 0; i < cards.size(); i++) {
+				add(cards.get(i));
+			}
+		}
+
+		public Card draw() {
+			return Card.of(drawCode());
+		}
+
+		public int drawCode() throws IllegalStateException {
+			if (size == 0) {
+				throw new IllegalStateException("The shoe is empty.");
+			}
+			int code = cards[--size];
+			drawn++;
+
+			int rank = code & Card.RANK_MASK;
+			ranks[rank]--;
+			hiLo += HI_LO_TAGS[rank];
+			ko += KO_TAGS[rank];
+			omegaII += OMEGA_II_TAGS[rank];
+			return code;
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		// Cards drawn since the shoe was made
+		public long getDrawn() {
+			return drawn;
+		}
+
+		public int remaining() {
+			return size;
+		}
+
+		// Undealt cards of a rank, 1 for aces up to 13 for kings
+		public int remaining(int rank) {
+			return ranks[rank];
+		}
+
+		// Undealt cards by points, index 1 for aces up to 10 for tens and faces
+		public int[] composition() {
+			int[] counts = new int[11];
+			for (int rank = 1; rank <= 13; rank++) {
+				counts[rank > 10 ? 10 : rank] += ranks[rank];
+			}
+			return counts;
+		}
+
+		public int runningCount(CountSystem system) {
+			switch(system) {
+				case HI_LO: return hiLo;
+				case KO: return ko;
+				default: return omegaII;
+			}
+		}
+
+		public double decksRemaining() {
+			return size / 52.0;
+		}
+
+		// Running count per deck still in the shoe
+		public double trueCount(CountSystem system) {
+			return size == 0 ? runningCount(system) : runningCount(system) / decksRemaining();
+		}
+
+		// True once the cut card has come out and the shoe should be reshuffled after the round
+		public boolean reachedCutCard() {
+			return size <= cutCard;
+		}
+
+		// The undealt cards in order and where the cut card is; the counts are rebuilt from them
+		private int snapshotSize() {
+			return 20 + size;
+		}
+
+		private void save(ByteBuffer buffer) {
+			buffer.putInt(decks).putInt(cutCard).putLong(drawn).putInt(size).put(cards, 0, size);
+		}
+
+		// Reads a saved shoe without changing this one, counting its cards by code
+		private void check(ByteBuffer buffer, int[] counts) throws IllegalArgumentException {
+			if (buffer.getInt() != decks) {
+				throw new IllegalArgumentException("The snapshot is of a shoe with a different number of decks.");
+			}
+			buffer.getInt();
+			buffer.getLong();
+			int saved = buffer.getInt();
+			if (saved < 0 || saved > 52 * decks) {
+				throw new IllegalArgumentException("Invalid number of cards in the shoe (" + saved + ").");
+			}
+			for (int i = 0; i < saved; i++) {
+				counts[Card.of(buffer.get()).code()]++;
+			}
+		}
+
+		// Only once check() has passed on the same bytes
+		private void restore(ByteBuffer buffer) {
+			buffer.getInt();
+			cutCard = buffer.getInt();
+			drawn = buffer.getLong();
+			size = buffer.getInt();
+			if (cards.length < size) {
+				cards = new byte[size];
+			}
+			buffer.get(cards, 0, size);
+			shuffled = true;
+			recount();
+		}
+
+		public String toString() {
+			StringBuilder str = new StringBuilder();
+
+			for (int i = 0; i < size; i++) {
+				str.append(Card.of(cards[i])).append('\n');
+			}
+			return str.toString();
+		}
+	}
+
+	// Single 52-card deck reshuffled after every round
+	public static class Deck extends Shoe {
+
+		public Deck() {
+			super(1, 0);
+		}
+	}
+
+	// House rules a table plays by. Rules never change once a table has been set up, so the table
+	// turns them into plain fields and play masks in its constructor and never looks at them again.
+	public static class TableRules {
+
+		// Six decks dealt to 75%, dealer stands on soft 17, blackjack pays 3:2, double after split and
+		// late surrender, no resplitting aces, up to six players
+		public static final TableRules STANDARD = new TableRules(6, 0.75, false, 3, 2, true, false, true, 6);
+
+		private final int decks;
+		private final double penetration;
+		private final boolean hitSoft17;
+		private final int blackjackPays;
+		private final int blackjackPer;
+		private final boolean doubleAfterSplit;
+		private final boolean resplitAces;
+		private final boolean surrender;
+		private final int seats;
+
+		// Blackjack pays blackjackPays to blackjackPer: 3 and 2 for 3:2, 6 and 5 for 6:5
+		public TableRules(int decks, double penetration, boolean hitSoft17, int blackjackPays, int blackjackPer, boolean doubleAfterSplit, boolean resplitAces, boolean surrender, int seats) throws IllegalArgumentException {
+			if (decks < 1) {
+				throw new IllegalArgumentException("Number of decks must be at least 1.");
+			}
+			if (penetration < 0 || penetration > 1) {
+				throw new IllegalArgumentException("Penetration must be between 0 and 1.");
+			}
+			if (blackjackPays < 1 || blackjackPer < 1) {
+				throw new IllegalArgumentException("Blackjack payout must be positive.");
+			}
+			if (seats < 1) {
+				throw new IllegalArgumentException("Number of seats must be at least 1.");
+			}
+			this.decks = decks;
+			this.penetration = penetration;
+			this.hitSoft17 = hitSoft17;
+			this.blackjackPays = blackjackPays;
+			this.blackjackPer = blackjackPer;
+			this.doubleAfterSplit = doubleAfterSplit;
+			this.resplitAces = resplitAces;
+			this.surrender = surrender;
+			this.seats = seats;
+		}
+
+		public int getDecks() {
+			return decks;
+		}
+
+		public double getPenetration() {
+			return penetration;
+		}
+
+		public boolean hitsSoft17() {
+			return hitSoft17;
+		}
+
+		public int getBlackjackPays() {
+			return blackjackPays;
+		}
+
+		public int getBlackjackPer() {
+			return blackjackPer;
+		}
+
+		public boolean doubleAfterSplit() {
+			return doubleAfterSplit;
+		}
+
+		public boolean resplitAces() {
+			return resplitAces;
+		}
+
+		public boolean surrender() {
+			return surrender;
+		}
+
+		public int getSeats() {
+			return seats;
+		}
+
+		// Shoe with these rules' decks and penetration
+		public Shoe newShoe(Rng rng) {
+			return new Shoe(decks, penetration, rng);
+		}
+
+		// The same rules dealt from the given shoe's decks and penetration
+		public TableRules forShoe(Shoe shoe) {
+			if (shoe.getDecks() == decks && shoe.getPenetration() == penetration) {
+				return this;
+			}
+			return new TableRules(shoe.getDecks(), shoe.getPenetration(), hitSoft17, blackjackPays, blackjackPer, doubleAfterSplit, resplitAces, surrender, seats);
+		}
+
+		public String toString() {
+			return decks + " decks, " + Math.round(penetration * 100) + "% penetration, " + (hitSoft17 ? "H17" : "S17") + ", blackjack pays " + blackjackPays + ":" + blackjackPer + (doubleAfterSplit ? ", DAS" : "") + (resplitAces ? ", RSA" : "") + (surrender ? ", late surrender" : "");
+		}
+	}
+
+	// Values are pure functions of the running totals: an ace counts 11 whenever that does not bust
+	// the hand and 1 otherwise, with no prompting. The console shows both totals of a soft hand
+	// through valueString() and leaves the choice to the player's next play.
+	public static class Hand {
+
+		public static final int COUNT_BITS = 5;
+
+		private List<Card> cards;
+		// Running totals kept up to date by add(), aces counted as 1 in hard
+		private int hard;
+		private int aces;
+		private long counts;
+
+		public Hand() {
+			cards = new ArrayList<Card>();
+		}
+
+		public void add(Card card) {
+			cards.add(card);
+			hard += card.points();
+			counts += 1L << COUNT_BITS * (card.points() - 1);
+			if (card.isAce()) {
+				aces++;
+			}
+		}
+
+		public List<Card> cards() {
+			return cards;
+		}
+
+		public int size() {
+			return cards.size();
+		}
+
+		public void clear() {
+			cards.clear();
+			hard = 0;
+			aces = 0;
+			counts = 0;
+		}
+
+		// Takes the last card back out, as when a pair is split
+		public Card removeLast() {
+			Card card = cards.remove(cards.size() - 1);
+			hard -= card.points();
+			counts -= 1L << COUNT_BITS * (card.points() - 1);
+			if (card.isAce()) {
+				aces--;
+			}
+			return card;
+		}
+
+		public int hardValue() {
+			return hard;
+		}
+
+		// The cards by points regardless of order, COUNT_BITS bits per count with aces in the lowest
+		// bits. Any hand that is not busted fits.
+		public long counts() {
+			return counts;
+		}
+
+		// One ace can be counted as 11 without busting
+		public boolean isSoft() {
+			return aces > 0 && hard <= 11;
+		}
+
+		public int value() {
+			return isSoft() ? hard + 10 : hard;
+		}
+
+		public boolean isBlackjack() {
+			return cards.size() == 2 && aces == 1 && hard == 11;
+		}
+
+		public boolean isBusted() {
+			return hard > 21;
+		}
+
+		public String valueString() {
+			if (isSoft()) {
+				return hard + " or " + (hard + 10);
+			} else {
+				return Integer.toString(hard);
+			}
+		}
+
+		public String toString() {
+			StringBuilder str = new StringBuilder();
+
+			for (int i = 0; i < cards.size(); i++) {
+				str.append('\t').append(cards.get(i)).append('\n');
+			}
+			return str.toString();
+		}
+
+	}
+
+	// Amounts of money are longs counting cents, so 3:2 on an odd bet, 6:5 or half a surrendered bet
+	// are exact. Payouts that still fall between cents, such as 6:5 on a bet of 0.01, are rounded down.
+	public static class Money {
+
+		public static final long UNIT = 100;
+
+		public static long of(long units) throws ArithmeticException {
+			return Math.multiplyExact(units, UNIT);
+		}
+
+		// amount * numerator / denominator, rounded down to the cent
+		public static long ratio(long amount, int numerator, int denominator) throws ArithmeticException {
+			return Math.multiplyExact(amount, numerator) / denominator;
+		}
+
+		// Units with up to two decimals, e.g. "25" or "12.50"
+		public static long parse(String text) throws NumberFormatException {
+			try {
+				return new java.math.BigDecimal(text).movePointRight(2).longValueExact();
+			} catch (ArithmeticException e) {
+				throw new NumberFormatException("Not an amount of money: " + text);
+			}
+		}
+
+		public static String format(long cents) {
+			long units = Math.abs(cents / UNIT);
+			int rest = (int) Math.abs(cents % UNIT);
+			String str = (cents < 0 ? "-" : "") + units;
+			return rest == 0 ? str : str + (rest < 10 ? ".0" : ".") + rest;
+		}
+	}
+
+	// What a player has staked and got back over their whole life at the table, in cents
+	public static class Ledger {
+
+		private long wagered;
+		private long returned;
+
+		private void wager(long amount) {
+			wagered = Math.addExact(wagered, amount);
+		}
+
+		private void collect(long amount) {
+			returned = Math.addExact(returned, amount);
+		}
+
+		public long getWagered() {
+			return wagered;
+		}
+
+		public long getReturned() {
+			return returned;
+		}
+
+		// Player's profit, negative when the house is ahead
+		public long getNet() {
+			return returned - wagered;
+		}
+
+		public String toString() {
+			return "Wagered " + Money.format(wagered) + ", returned " + Money.format(returned) + ", net " + Money.format(getNet());
+		}
+	}
+
+	// House totals shared by any number of tables. Every counter is a LongAdder, so tables on different
+	// threads settle their rounds into it without contending on a single cache line.
+	public static class HouseTotals {
+
+		private LongAdder rounds = new LongAdder();
+		private LongAdder seats = new LongAdder();
+		private LongAdder wagered = new LongAdder();
+		private LongAdder returned = new LongAdder();
+
+		public void roundSettled() {
+			rounds.increment();
+		}
+
+		public void seatSettled(long staked, long paid) {
+			seats.increment();
+			wagered.add(staked);
+			returned.add(paid);
+		}
+
+		public long getRounds() {
+			return rounds.sum();
+		}
+
+		public long getSeats() {
+			return seats.sum();
+		}
+
+		public long getWagered() {
+			return wagered.sum();
+		}
+
+		public long getReturned() {
+			return returned.sum();
+		}
+
+		// House profit in cents
+		public long getNet() {
+			return wagered.sum() - returned.sum();
+		}
+
+		// House profit per unit wagered
+		public double edge() {
+			long staked = wagered.sum();
+			return staked == 0 ? 0 : (double) getNet() / staked;
+		}
+
+		public String toString() {
+			return "House: " + getRounds() + " rounds, wagered " + Money.format(getWagered()) + ", paid out " + Money.format(getReturned()) + ", net " + Money.format(getNet()) + " (edge " + String.format("%.4f%%", 100 * edge()) + ")";
+		}
+	}
+
+	// Counters and phase latencies shared by any number of tables, cheap enough to leave on in a
+	// simulation. Tables count into plain fields of their own and add them to the LongAdders here
+	// once every sampleEvery rounds, the same rounds they time, since even an uncontended adder or a
+	// clock read costs a good part of a round. Snapshots are exported in the Prometheus text format,
+	// to a file or over HTTP.
+	public static class Metrics {
+
+		private static final Phase[] phases = Phase.values();
+
+		private LongAdder rounds = new LongAdder();
+		private LongAdder draws = new LongAdder();
+		private LongAdder reshuffles = new LongAdder();
+		private LongAdder busts = new LongAdder();
+		private LongAdder blackjacks = new LongAdder();
+		private LongAdder dealerBusts = new LongAdder();
+		private LongAdder dealerBlackjacks = new LongAdder();
+		private Histogram[] latencies = new Histogram[phases.length];
+		private int sampleMask;
+		// Bumped to ask every table to add its counts at its next round
+		private volatile long flushes;
+
+		public Metrics() {
+			this(256);
+		}
+
+		public Metrics(int sampleEvery) throws IllegalArgumentException {
+			if (sampleEvery < 1 || Integer.bitCount(sampleEvery) != 1) {
+				throw new IllegalArgumentException("Sampling interval must be a power of two.");
+			}
+			sampleMask = sampleEvery - 1;
+			for (int i = 0; i < phases.length; i++) {
+				latencies[i] = new Histogram();
+			}
+		}
+
+		public boolean sampled(long round) {
+			return (round & sampleMask) == 0;
+		}
+
+		// Tables between sampled rounds add their counts when they next open a round, so the totals
+		// lag by at most one round per table after this. Every export asks for the next one.
+		public void requestFlush() {
+			flushes++;
+		}
+
+		public long getFlushes() {
+			return flushes;
+		}
+
+		// What a table counted since it last added to the totals
+		public void add(Counts counts) {
+			rounds.add(counts.rounds);
+			draws.add(counts.draws);
+			reshuffles.add(counts.reshuffles);
+			busts.add(counts.busts);
+			blackjacks.add(counts.blackjacks);
+			dealerBusts.add(counts.dealerBusts);
+			dealerBlackjacks.add(counts.dealerBlackjacks);
+		}
+
+		public void phaseTimed(Phase phase, long nanos) {
+			latencies[phase.ordinal()].record(nanos);
+		}
+
+		public long getRounds() {
+			return rounds.sum();
+		}
+
+		public long getDraws() {
+			return draws.sum();
+		}
+
+		public long getReshuffles() {
+			return reshuffles.sum();
+		}
+
+		public Histogram getLatency(Phase phase) {
+			return latencies[phase.ordinal()];
+		}
+
+		public String toPrometheus() {
+			requestFlush();
+			StringBuilder str = new StringBuilder();
+			counter(str, "blackjack_rounds_total", "Rounds settled.", rounds);
+			counter(str, "blackjack_cards_drawn_total", "Cards drawn from the shoe.", draws);
+			counter(str, "blackjack_reshuffles_total", "Shoes reshuffled by the tables.", reshuffles);
+			counter(str, "blackjack_hands_busted_total", "Player hands settled busted.", busts);
+			counter(str, "blackjack_hands_blackjack_total", "Player hands settled as blackjack.", blackjacks);
+			counter(str, "blackjack_dealer_busts_total", "Dealer hands that busted.", dealerBusts);
+			counter(str, "blackjack_dealer_blackjacks_total", "Dealer hands that were blackjack.", dealerBlackjacks);
+
+			str.append("# HELP blackjack_phase_seconds Time spent in each phase of the sampled rounds.\n# TYPE blackjack_phase_seconds summary\n");
+			double[] quantiles = { 0.5, 0.9, 0.99, 0.999 };
+			for (int i = 0; i < phases.length; i++) {
+				Histogram.Snapshot histogram = latencies[i].snapshot();
+				String phase = "phase=\"" + phases[i].name().toLowerCase() + "\"";
+				long count = histogram.getCount();
+				for (int q = 0; q < quantiles.length; q++) {
+					str.append("blackjack_phase_seconds{").append(phase).append(",quantile=\"").append(quantiles[q]).append("\"} ").append(count == 0 ? "NaN" : Double.toString(histogram.quantile(quantiles[q]) / 1e9)).append('\n');
+				}
+				str.append("blackjack_phase_seconds_sum{").append(phase).append("} ").append(histogram.getSum() / 1e9).append('\n');
+				str.append("blackjack_phase_seconds_count{").append(phase).append("} ").append(count).append('\n');
+			}
+			return str.toString();
+		}
+
+		private static void counter(StringBuilder str, String name, String help, LongAdder value) {
+			str.append("# HELP ").append(name).append(' ').append(help).append("\n# TYPE ").append(name).append(" counter\n").append(name).append(' ').append(value.sum()).append('\n');
+		}
+
+		// Written next to the file and moved over it, so a scraper never reads half a snapshot
+		public void writePrometheus(Path path) throws IOException {
+			Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+			Files.write(temp, toPrometheus().getBytes(StandardCharsets.UTF_8));
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+
+		// Serves a snapshot at /metrics until the returned server is stopped
+		public HttpServer serve(int port) throws IOException {
+			HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+			server.createContext("/metrics", exchange -> {
+				byte[] body = toPrometheus().getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			});
+			server.start();
+			return server;
+		}
+
+		public String toString() {
+			StringBuilder str = new StringBuilder("Metrics: " + getRounds() + " rounds, " + getDraws() + " cards drawn, " + getReshuffles() + " reshuffles, " + busts.sum() + " busts, " + blackjacks.sum() + " blackjacks");
+			for (int i = 0; i < phases.length; i++) {
+				str.append('\n').append(phases[i]).append(' ').append(latencies[i]);
+			}
+			return str.toString();
+		}
+
+		// One table's counts, owned by its thread until added to the Metrics
+		public static class Counts {
+
+			private long rounds;
+			private long draws;
+			private long reshuffles;
+			private long busts;
+			private long blackjacks;
+			private long dealerBusts;
+			private long dealerBlackjacks;
+
+			public void roundSettled(long cards) {
+				rounds++;
+				draws += cards;
+			}
+
+			public void reshuffled() {
+				reshuffles++;
+			}
+
+			public void handSettled(Player.State state) {
+				if (state == Player.State.BUSTED) {
+					busts++;
+				} else if (state == Player.State.BLACKJACK) {
+					blackjacks++;
+				}
+			}
+
+			// Outcome as in DealerOdds
+			public void dealerFinished(int outcome) {
+				if (outcome == DealerOdds.BUST) {
+					dealerBusts++;
+				} else if (outcome == DealerOdds.BLACKJACK) {
+					dealerBlackjacks++;
+				}
+			}
+
+			public void clear() {
+				rounds = draws = reshuffles = busts = blackjacks = dealerBusts = dealerBlackjacks = 0;
+			}
+		}
+
+		// Log-linear buckets in the manner of HdrHistogram: every power of two is split into SUB
+		// buckets, so any value up to 2^MAX_BITS nanoseconds is kept to within 1/SUB of itself.
+		public static class Histogram {
+
+			private static final int SUB_BITS = 5;
+			private static final int SUB = 1 << SUB_BITS;
+			private static final int MAX_BITS = 40;
+			private static final long MAX = (1L << MAX_BITS) - 1;
+
+			private AtomicLongArray counts = new AtomicLongArray((MAX_BITS - SUB_BITS + 1) * SUB);
+			private LongAdder sum = new LongAdder();
+
+			private static int bucket(long value) {
+				int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BITS - 1);
+				return (shift << SUB_BITS) + (int) (value >>> shift);
+			}
+
+			// Highest value that falls in the bucket
+			private static long highest(int bucket) {
+				if (bucket < 2 * SUB) {
+					return bucket;
+				}
+				int shift = (bucket >> SUB_BITS) - 1;
+				return ((long) (bucket - (shift << SUB_BITS)) << shift) + (1L << shift) - 1;
+			}
+
+			public void record(long value) {
+				value = Math.max(0, Math.min(value, MAX));
+				counts.incrementAndGet(bucket(value));
+				sum.add(value);
+			}
+
+			// Copies the buckets once, so everything read from the copy agrees even while tables record
+			public Snapshot snapshot() {
+				Snapshot snapshot = new Snapshot();
+				snapshot.counts = new long[counts.length()];
+				for (int i = 0; i < snapshot.counts.length; i++) {
+					snapshot.counts[i] = counts.get(i);
+					snapshot.count += snapshot.counts[i];
+				}
+				snapshot.sum = sum.sum();
+				return snapshot;
+			}
+
+			public String toString() {
+				return snapshot().toString();
+			}
+
+			public static class Snapshot {
+
+				private long[] counts;
+				private long count;
+				private long sum;
+
+				public long getCount() {
+					return count;
+				}
+
+				// Read just after the buckets, so it may include a few samples the counts do not
+				public long getSum() {
+					return sum;
+				}
+
+				// Upper bound of the bucket holding the q-quantile, 0 when empty
+				public long quantile(double q) {
+					long rank = (long) Math.ceil(q * count);
+					long seen = 0;
+					for (int i = 0; i < counts.length; i++) {
+						seen += counts[i];
+						if (seen >= rank && seen > 0) {
+							return highest(i);
+						}
+					}
+					return 0;
+				}
+
+				public String toString() {
+					if (count == 0) {
+						return "no samples";
+					}
+					return String.format("%d samples, mean %d ns, p50 %d ns, p99 %d ns, p99.9 %d ns", count, sum / count, quantile(0.5), quantile(0.99), quantile(0.999));
+				}
+			}
+		}
+	}
+
+	// A player starts every round with one hand and can split it up to MAX_HANDS hands, each with its
+	// own bet and state. The hands are allocated once with the player and reused round after round;
+	// hand(), getBet(), getState() and the state changes all refer to the hand being played.
+	public static class Player {
+
+		public static final int MAX_HANDS = 4;
+
+		private static final String[] play_labels = { "(H)IT", "(S)TAND", "(D)OUBLE", "S(P)LIT", "S(U)RRENDER" };
+
+		private String name;
+		private long money;
+		private Ledger ledger = new Ledger();
+		private Hand[] hands;
+		private long[] bets;
+		private State[] states;
+		private int count;
+		private int current;
+		private Strategy strategy;
+
+		// DEALER_BLACKJACK marks a hand lost to the dealer's peek before anyone played
+		public static enum State { PLAYING, TWENTYONE, BLACKJACK, STAND, BUSTED, RETIRED, RUINED, DEALER_BLACKJACK };
+		
+		public Player(String name, long money) {
+			this(name, money, null);
+		}
+
+		public Player(String name, long money, Strategy strategy) {
+			this.name = name;
+			this.money = money;
+			this.strategy = strategy;
+			hands = new Hand[MAX_HANDS];
+			bets = new long[MAX_HANDS];
+			states = new State[MAX_HANDS];
+			for (int i = 0; i < MAX_HANDS; i++) {
+				hands[i] = new Hand();
+				states[i] = State.PLAYING;
+			}
+			count = 1;
+			current = 0;
+		}
+
+		public long getMoney() {
+			return money;
+		}
+
+		// Resets the stack without touching the ledger
+		public void setMoney(long money) {
+			this.money = money;
+		}
+
+		public Ledger getLedger() {
+			return ledger;
+		}
+
+		public long getBet() {
+			return bets[current];
+		}
+
+		public long getBet(int hand) {
+			return bets[hand];
+		}
+
+		// The bet placed before the deal, on the first hand
+		public void setBet(long bet) {
+			bets[0] = bet;
+		}
+
+		public Hand hand() {
+			return hands[current];
+		}
+
+		public Hand hand(int hand) {
+			return hands[hand];
+		}
+
+		// Number of hands in play this round
+		public int hands() {
+			return count;
+		}
+
+		public int currentHand() {
+			return current;
+		}
+
+		public Strategy getStrategy() {
+			return strategy;
+		}
+
+		public boolean isAutomated() {
+			return strategy != null;
+		}
+
+		// A console player is prompted through the table's output, like the bet prompt
+		public Play choosePlay(Card dealerUpcard, int allowed, Output out) {
+			if (strategy != null) {
+				return strategy.choosePlay(this, dealerUpcard, allowed);
+			}
+
+			StringBuilder options = new StringBuilder();
+			for (Play play : Play.values()) {
+				if (play.in(allowed)) {
+					options.append(options.length() == 0 ? "" : ", ").append(play_labels[play.ordinal()]);
+				}
+			}
+
+			Play play = null;
+			do {
+				out.println(name + ", choose your play; " + options + ":");
+				out.print("> ");
+				out.flush();
+				switch(Character.toLowerCase(in.next().charAt(0))) {
+					case 'h': play = Play.HIT; break;
+					case 's': play = Play.STAND; break;
+					case 'd': play = Play.DOUBLE; break;
+					case 'p': play = Play.SPLIT; break;
+					case 'u': play = Play.SURRENDER; break;
+					default: play = null;
+				}
+			} while (play == null || !play.in(allowed));
+			return play;
+		}
+
+		// Doubles the bet on the hand being played; false if the player cannot cover it
+		public boolean doubleDown() {
+			if (!bet(bets[current])) {
+				return false;
+			}
+			bets[current] *= 2;
+			return true;
+		}
+
+		// Moves the second card of the hand being played to a new hand with the same bet; false if
+		// there is no room for another hand or the player cannot cover the bet
+		public boolean split() {
+			if (count == MAX_HANDS || hands[current].size() != 2 || !bet(bets[current])) {
+				return false;
+			}
+			hands[count].add(hands[current].removeLast());
+			bets[count] = bets[current];
+			states[count] = State.PLAYING;
+			count++;
+			return true;
+		}
+
+		// Gives up the hand; half the bet comes back at the payout
+		public void surrender() {
+			states[current] = State.RETIRED;
+		}
+
+		// Moves on to the next split hand, if any
+		public boolean nextHand() {
+			if (current + 1 < count) {
+				current++;
+				return true;
+			}
+			return false;
+		}
+
+		public boolean bet(long quantity) {
+			long remainder = money - quantity;
+
+			if (remainder >= 0) {
+				money = remainder;
+				ledger.wager(quantity);
+				return true;
+			} else {
+				return false;
+			}
+		}
+
+		// Takes a payout, stake included
+		public void collect(long amount) {
+			money = Math.addExact(money, amount);
+			ledger.collect(amount);
+		}
+
+		public void startsTurn() {
+			count = 1;
+			current = 0;
+			states[0] = State.PLAYING;
+		}
+
+		public void stand() {
+			states[current] = State.STAND;
+		}
+
+		public void busted() {
+			states[current] = State.BUSTED;
+		}
+
+		public void blackjack() {
+			states[current] = State.BLACKJACK;
+		}
+
+		public void twentyoneScore() {
+			states[current] = State.TWENTYONE;
+		}
+
+		public void lostToDealerBlackjack() {
+			states[current] = State.DEALER_BLACKJACK;
+		}
+
+		public State getState() {
+			return states[current];
+		}
+
+		public State getState(int hand) {
+			return states[hand];
+		}
+
+		public boolean hasBlackjack() {
+			return states[current] == State.BLACKJACK;
+		}
+
+		public boolean hasTwentyone() {
+			return states[current] == State.TWENTYONE;
+		}
+
+		public boolean isPlaying() {
+			return states[current] == State.PLAYING;
+		}
+
+		public boolean isBusted() {
+			return states[current] == State.BUSTED;
+		}
+
+		public String toString() {
+			return name;
+		}
+	}
+
+	public static class Dealer {
+
+		private String name;
+		private Hand hand;
+		private State state;
+
+		public static enum State { PLAYING, TWENTYONE, BLACKJACK, BUSTED };
+
+		public Dealer() {
+			name = "Dealer";
+			hand = new Hand();
+			state = State.PLAYING;
+		}
+
+		public Hand hand() {
+			return hand;
+		}
+
+		public void startsTurn() {
+			state = State.PLAYING;
+		}
+
+		public void busted() {
+			state = State.BUSTED;
+		}
+
+		public void blackjack() {
+			state = State.BLACKJACK;
+		}
+
+		public void twentyoneScore() {
+			state = State.TWENTYONE;
+		}
+
+		public boolean isBusted() {
+			return state == State.BUSTED;
+		}
+
+		public boolean hasBlackjack() {
+			return state == State.BLACKJACK;
+		}
+
+		public boolean hasTwentyone() {
+			return state == State.TWENTYONE;
+		}
+
+		public String toString() {
+			return name;
+		}
+
+		public String initialHandString() {
+			return "\t" + hand.cards().get(0) + "\n" + "\t?\n";
+		}
+	}
+
+	public static interface Strategy {
+
+		// In cents
+		public long placeBet(Player player);
+
+		// allowed is a mask of Play.bit() values the table accepts for the current hand
+		public Play choosePlay(Player player, Card dealerUpcard, int allowed);
+	}
+
+	public static class MimicDealerStrategy implements Strategy {
+
+		private long bet;
+
+		public MimicDealerStrategy(long bet) {
+			this.bet = bet;
+		}
+
+		public long placeBet(Player player) {
+			return bet;
+		}
+
+		public Play choosePlay(Player player, Card dealerUpcard, int allowed) {
+			return player.hand().value() < 17 ? Play.HIT : Play.STAND;
+		}
+	}
+
+	// Basic strategy as a flat action table indexed by hand row and dealer upcard. Rows are hard totals,
+	// soft totals and pairs; each entry packs the preferred play in its low three bits and the play to
+	// fall back on, when the table does not allow the preferred one, in the next three.
+	public static class BasicStrategy implements Strategy {
+
+		private static final int HARD = 0;
+		private static final int SOFT = 22;
+		private static final int PAIR = 44;
+		private static final int ROWS = PAIR + 11;
+		private static final int NO_SPLIT = 7;
+		private static final Play[] plays = Play.values();
+
+		private byte[] table;
+		private long bet;
+
+		public BasicStrategy(int decks, boolean hitSoft17, boolean doubleAfterSplit, boolean surrender, long bet) {
+			this(generate(decks, hitSoft17, doubleAfterSplit, surrender), bet);
+		}
+
+		private BasicStrategy(byte[] table, long bet) {
+			this.table = table;
+			this.bet = bet;
+		}
+
+		public BasicStrategy(TableRules rules, long bet) {
+			this(rules.getDecks(), rules.hitsSoft17(), rules.doubleAfterSplit(), rules.surrender(), bet);
+		}
+
+		public long placeBet(Player player) {
+			return bet;
+		}
+
+		public Play choosePlay(Player player, Card dealerUpcard, int allowed) {
+			return lookup(player.hand(), dealerUpcard.points(), allowed);
+		}
+
+		// upcard in points, ace as 1
+		public Play lookup(Hand hand, int upcard, int allowed) {
+			int pair = 0;
+			if (hand.size() == 2 && hand.cards().get(0).points() == hand.cards().get(1).points()) {
+				pair = hand.cards().get(0).points();
+			}
+			return lookup(table, hand.hardValue(), hand.isSoft(), pair, upcard, allowed);
+		}
+
+		// The same on a hand given by its hard total, whether it is soft and the points of its cards if
+		// it is a two-card pair, 0 otherwise
+		private static Play lookup(byte[] table, int hard, boolean soft, int pair, int upcard, int allowed) {
+			int column = upcard - 1;
+
+			if (pair > 0 && Play.SPLIT.in(allowed) && table[(PAIR + pair) * 10 + column] == Play.SPLIT.ordinal()) {
+				return Play.SPLIT;
+			}
+
+			int row = soft ? SOFT + hard + 10 : HARD + hard;
+			int action = table[row * 10 + column];
+			Play play = plays[action & 7];
+			if (play.in(allowed)) {
+				return play;
+			}
+			// Split aces that may be resplit can only stand otherwise
+			Play fallback = plays[action >> 3];
+			return fallback.in(allowed) ? fallback : Play.STAND;
+		}
+
+		// Charts are written with upcards 2 to 10 and then the ace:
+		// H hit, S stand, D double or hit, B double or stand, R surrender or hit, r surrender or stand,
+		// P split and - don't split.
+		public static byte[] generate(int decks, boolean hitSoft17, boolean doubleAfterSplit, boolean surrender) {
+			byte[] table = new byte[ROWS * 10];
+			boolean few_decks = decks <= 2;
+
+			for (int total = 0; total <= 21; total++) {
+				chart(table, HARD + total, total < 12 ? "HHHHHHHHHH" : "SSSSSSSSSS", surrender);
+				chart(table, SOFT + total, total < 19 ? "HHHHHHHHHH" : "SSSSSSSSSS", surrender);
+			}
+			chart(table, HARD + 8, decks == 1 ? "HHHDDHHHHH" : "HHHHHHHHHH", surrender);
+			chart(table, HARD + 9, few_decks ? "DDDDDHHHHH" : "HDDDDHHHHH", surrender);
+			chart(table, HARD + 10, "DDDDDDDDHH", surrender);
+			chart(table, HARD + 11, few_decks || hitSoft17 ? "DDDDDDDDDD" : "DDDDDDDDDH", surrender);
+			chart(table, HARD + 12, "HHSSSHHHHH", surrender);
+			chart(table, HARD + 13, "SSSSSHHHHH", surrender);
+			chart(table, HARD + 14, "SSSSSHHHHH", surrender);
+			chart(table, HARD + 15, hitSoft17 ? "SSSSSHHHRR" : "SSSSSHHHRH", surrender);
+			chart(table, HARD + 16, "SSSSSHHRRR", surrender);
+			chart(table, HARD + 17, hitSoft17 ? "SSSSSSSSSr" : "SSSSSSSSSS", surrender);
+
+			chart(table, SOFT + 13, "HHHDDHHHHH", surrender);
+			chart(table, SOFT + 14, "HHHDDHHHHH", surrender);
+			chart(table, SOFT + 15, "HHDDDHHHHH", surrender);
+			chart(table, SOFT + 16, "HHDDDHHHHH", surrender);
+			chart(table, SOFT + 17, "HDDDDHHHHH", surrender);
+			chart(table, SOFT + 18, hitSoft17 ? "BBBBBSSHHH" : "SBBBBSSHHH", surrender);
+			chart(table, SOFT + 19, hitSoft17 ? "SSSSBSSSSS" : "SSSSSSSSSS", surrender);
+
+			chart(table, PAIR + 1, "PPPPPPPPPP", surrender);
+			chart(table, PAIR + 2, doubleAfterSplit ? "PPPPPPHHHH" : "--PPPP----", surrender);
+			chart(table, PAIR + 3, doubleAfterSplit ? "PPPPPPHHHH" : "--PPPP----", surrender);
+			chart(table, PAIR + 4, doubleAfterSplit ? "---PP-----" : "----------", surrender);
+			chart(table, PAIR + 5, "----------", surrender);
+			chart(table, PAIR + 6, doubleAfterSplit ? "PPPPP-----" : "-PPPP-----", surrender);
+			chart(table, PAIR + 7, "PPPPPP----", surrender);
+			chart(table, PAIR + 8, "PPPPPPPPPP", surrender);
+			chart(table, PAIR + 9, "PPPPP-PP--", surrender);
+			chart(table, PAIR + 10, "----------", surrender);
+			return table;
+		}
+
+		private static void chart(byte[] table, int row, String actions, boolean surrender) {
+			for (int i = 0; i < 10; i++) {
+				int column = i == 9 ? 0 : i + 1;
+				table[row * 10 + column] = (byte) action(actions.charAt(i), surrender);
+			}
+		}
+
+		private static int action(char code, boolean surrender) {
+			switch(code) {
+				case 'H': return pack(Play.HIT, Play.HIT);
+				case 'S': return pack(Play.STAND, Play.STAND);
+				case 'D': return pack(Play.DOUBLE, Play.HIT);
+				case 'B': return pack(Play.DOUBLE, Play.STAND);
+				case 'R': return surrender ? pack(Play.SURRENDER, Play.HIT) : pack(Play.HIT, Play.HIT);
+				case 'r': return surrender ? pack(Play.SURRENDER, Play.STAND) : pack(Play.STAND, Play.STAND);
+				case 'P': return Play.SPLIT.ordinal();
+				case '-': return NO_SPLIT;
+				default: throw new IllegalArgumentException("Invalid chart code '" + code + "'.");
+			}
+		}
+
+		private static int pack(Play play, Play fallback) {
+			return play.ordinal() | fallback.ordinal() << 3;
+		}
+	}
+
+	// Exact probabilities of the dealer's final hand for a given upcard and remaining shoe, found by
+	// recursing over every card the dealer can draw. Intermediate results are memoized by the shoe
+	// composition packed into a long (6 bits per count for aces to nines, 8 bits for tens) plus the
+	// dealer's hand state, so they are shared between queries on the same or overlapping shoes.
+	public static class DealerOdds {
+
+		public static final int BUST = 5;
+		public static final int BLACKJACK = 6;
+		public static final int OUTCOMES = 7;
+
+		private static final double[][] finals = new double[BUST + 1][];
+
+		static {
+			for (int i = 0; i <= BUST; i++) {
+				finals[i] = new double[OUTCOMES];
+				finals[i][i] = 1;
+			}
+		}
+
+		private boolean hitSoft17;
+		private long[] keys;
+		private int[] states;
+		private double[][] values;
+		private int size;
+
+		public DealerOdds(boolean hitSoft17) {
+			this.hitSoft17 = hitSoft17;
+			clear();
+		}
+
+		public void clear() {
+			keys = new long[1 << 12];
+			states = new int[keys.length];
+			values = new double[keys.length][];
+			size = 0;
+		}
+
+		public int memoized() {
+			return size;
+		}
+
+		public static String outcomeString(int outcome) {
+			switch(outcome) {
+				case BUST: return "Bust";
+				case BLACKJACK: return "Blackjack";
+				default: return Integer.toString(17 + outcome);
+			}
+		}
+
+		public static long pack(int[] counts) throws IllegalArgumentException {
+			long key = 0;
+			for (int points = 1; points <= 9; points++) {
+				if (counts[points] < 0 || counts[points] > 63) {
+					throw new IllegalArgumentException("Too many cards of one rank to pack the composition.");
+				}
+				key |= (long) counts[points] << (6 * (points - 1));
+			}
+			if (counts[10] < 0 || counts[10] > 255) {
+				throw new IllegalArgumentException("Too many ten-valued cards to pack the composition.");
+			}
+			return key | (long) counts[10] << 54;
+		}
+
+		public static long unit(int points) {
+			return 1L << (points == 10 ? 54 : 6 * (points - 1));
+		}
+
+		// Outcome probabilities indexed 0-4 for 17-21, then BUST and BLACKJACK. composition holds the
+		// undealt cards by points (see Shoe.composition()) and must not include the upcard.
+		public double[] probabilities(int upcard, int[] composition) {
+			int[] counts = Arrays.copyOf(composition, 11);
+			int remaining = 0;
+			for (int points = 1; points <= 10; points++) {
+				remaining += counts[points];
+			}
+			return probabilities(upcard, pack(counts), counts, remaining);
+		}
+
+		// Same, for callers that keep the packed key and card total of counts up to date themselves.
+		// counts is used as scratch space and restored before returning.
+		public double[] probabilities(int upcard, long key, int[] counts, int remaining) {
+			return dealer(key, counts, remaining, upcard, upcard == 1, true);
+		}
+
+		private double[] dealer(long key, int[] counts, int remaining, int hard, boolean ace, boolean hole) {
+			if (!hole) {
+				if (hard > 21) {
+					return finals[BUST];
+				}
+				int value = ace && hard <= 11 ? hard + 10 : hard;
+				if (value > 17 || (value == 17 && !(hitSoft17 && ace && hard <= 11))) {
+					return finals[value - 17];
+				}
+			}
+
+			int state = hard << 2 | (ace ? 2 : 0) | (hole ? 1 : 0);
+			int slot = find(key, state);
+			if (values[slot] != null) {
+				return values[slot];
+			}
+
+			double[] result = new double[OUTCOMES];
+			for (int points = 1; points <= 10; points++) {
+				int count = counts[points];
+				if (count == 0) {
+					continue;
+				}
+				double probability = (double) count / remaining;
+
+				if (hole && hard + points == 11 && (ace || points == 1)) {
+					result[BLACKJACK] += probability;
+					continue;
+				}
+				counts[points]--;
+				double[] next = dealer(key - unit(points), counts, remaining - 1, hard + points, ace || points == 1, false);
+				counts[points]++;
+				for (int i = 0; i < OUTCOMES; i++) {
+					result[i] += probability * next[i];
+				}
+			}
+
+			slot = find(key, state);
+			keys[slot] = key;
+			states[slot] = state;
+			values[slot] = result;
+			if (++size * 2 > keys.length) {
+				grow();
+			}
+			return result;
+		}
+
+		private int find(long key, int state) {
+			int mask = keys.length - 1;
+			long hash = (key ^ (long) state << 58) * 0x9e3779b97f4a7c15L;
+			int slot = (int) (hash >>> 40) & mask;
+
+			while (values[slot] != null && (keys[slot] != key || states[slot] != state)) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		private void grow() {
+			long[] old_keys = keys;
+			int[] old_states = states;
+			double[][] old_values = values;
+
+			keys = new long[2 * old_keys.length];
+			states = new int[keys.length];
+			values = new double[keys.length][];
+			for (int i = 0; i < old_keys.length; i++) {
+				if (old_values[i] != null) {
+					int slot = find(old_keys[i], old_states[i]);
+					keys[slot] = old_keys[i];
+					states[slot] = old_states[i];
+					values[slot] = old_values[i];
+				}
+			}
+		}
+	}
+
+	// Composition-dependent expected values of every play, per unit bet, for a two-card hand against an
+	// upcard and a given shoe. Hitting is solved exactly: the player's best play is memoized by the
+	// packed composition left after every draw plus the hand's hard total and ace, and standing asks
+	// DealerOdds about that same composition. The dealer peeks, so dealer outcomes are conditioned on
+	// no blackjack; like most combinatorial analyzers, the player's own draws ignore what the peek
+	// reveals about the hole card. Splits are played out without resplitting, each hand seeing the shoe
+	// less the other hand's first card only.
+	public static class StrategySolver {
+
+		private static final Play[] plays = Play.values();
+
+		private TableRules rules;
+		// Per thread and upcard, evaluators over the full shoe for bestPlay()
+		private ThreadLocal<Evaluator[]> evaluators = ThreadLocal.withInitial(() -> new Evaluator[10]);
+
+		public StrategySolver(TableRules rules) {
+			this.rules = rules;
+		}
+
+		private static int value(int hard, boolean ace) {
+			return ace && hard <= 11 ? hard + 10 : hard;
+		}
+
+		// Cards by points, as in Shoe.composition(), of a full shoe
+		public static int[] fullShoe(int decks) {
+			int[] counts = new int[11];
+			for (int points = 1; points <= 9; points++) {
+				counts[points] = 4 * decks;
+			}
+			counts[10] = 16 * decks;
+			return counts;
+		}
+
+		// Expected value of each play by Play ordinal, NaN for plays the rules do not allow. Cards are in
+		// points, ace as 1; composition is the shoe before the hand and the upcard were dealt.
+		public double[] evaluate(int first, int second, int upcard, int[] composition) throws IllegalArgumentException {
+			Evaluator evaluator = new Evaluator(upcard, composition);
+			evaluator.take(upcard);
+			evaluator.take(first);
+			evaluator.take(second);
+			return evaluator.evaluate(first + second, first == 1 || second == 1, first == second ? first : 0);
+		}
+
+		// Allowed play with the highest EV for the cards in a hand of any size, against the full shoe of
+		// the rules less those cards and the upcard. The evaluators behind it keep their memos between
+		// calls, so hands that share compositions get cheaper as play goes on.
+		public Play bestPlay(Hand hand, int upcard, int allowed) throws IllegalArgumentException {
+			Evaluator[] mine = evaluators.get();
+			Evaluator evaluator = mine[upcard - 1];
+			if (evaluator == null) {
+				evaluator = mine[upcard - 1] = new Evaluator(upcard, fullShoe(rules.getDecks()));
+				evaluator.take(upcard);
+			}
+
+			List<Card> cards = hand.cards();
+			int taken = 0;
+			try {
+				for (; taken < cards.size(); taken++) {
+					evaluator.take(cards.get(taken).points());
+				}
+				int pair = cards.size() == 2 && cards.get(0).points() == cards.get(1).points() ? cards.get(0).points() : 0;
+				double[] ev = evaluator.evaluate(hand.hardValue(), hand.counts() % (1 << Hand.COUNT_BITS) > 0, pair);
+
+				Play best = Play.STAND;
+				for (int i = 0; i < plays.length; i++) {
+					if (plays[i].in(allowed) && ev[i] > ev[best.ordinal()]) {
+						best = plays[i];
+					}
+				}
+				return best;
+			} finally {
+				while (taken > 0) {
+					evaluator.put(cards.get(--taken).points());
+				}
+			}
+		}
+
+		// Charts for every upcard, solved in parallel, one fork/join task per upcard
+		public Chart solve(int[] composition, ForkJoinPool pool) {
+			List<Column> columns = new ArrayList<Column>();
+			for (int upcard = 1; upcard <= 10; upcard++) {
+				columns.add(new Column(upcard, composition));
+			}
+			Chart chart = new Chart(rules);
+			for (Column column : ForkJoinTask.invokeAll(columns)) {
+				column.join().fill(chart);
+			}
+			return chart;
+		}
+
+		public Chart solve() {
+			return solve(fullShoe(rules.getDecks()), ForkJoinPool.commonPool());
+		}
+
+		// Fork/join tasks are never serialized
+		@SuppressWarnings("serial")
+		private class Column extends RecursiveTask<Evaluator> {
+
+			private int upcard;
+			private int[] composition;
+
+			private Column(int upcard, int[] composition) {
+				this.upcard = upcard;
+				this.composition = composition;
+			}
+
+			protected Evaluator compute() {
+				Evaluator evaluator = new Evaluator(upcard, composition);
+				evaluator.take(upcard);
+				evaluator.solveColumn();
+				return evaluator;
+			}
+		}
+
+		// Not thread-safe: every task has its own, with its own dealer and player memos
+		private class Evaluator {
+
+			private int upcard;
+			private int[] counts;
+			private int remaining;
+			private long key;
+			private DealerOdds odds = new DealerOdds(rules.hitsSoft17());
+
+			// Best of hit and stand, memoized by (key, hard << 1 | ace) in open addressing
+			private long[] keys = new long[1 << 12];
+			private int[] states = new int[keys.length];
+			private double[] values = new double[keys.length];
+			private int size;
+
+			// Per row and play: probability-weighted EV sums and the weights, for this column
+			private double[] sums = new double[BasicStrategy.ROWS * plays.length];
+			private double[] weights = new double[BasicStrategy.ROWS];
+
+			private Evaluator(int upcard, int[] composition) throws IllegalArgumentException {
+				this.upcard = upcard;
+				counts = Arrays.copyOf(composition, 11);
+				for (int points = 1; points <= 10; points++) {
+					remaining += counts[points];
+				}
+				key = DealerOdds.pack(counts);
+			}
+
+			private void take(int points) throws IllegalArgumentException {
+				if (counts[points] == 0) {
+					throw new IllegalArgumentException("No card of " + points + " points left in the shoe.");
+				}
+				counts[points]--;
+				remaining--;
+				key -= DealerOdds.unit(points);
+			}
+
+			private void put(int points) {
+				counts[points]++;
+				remaining++;
+				key += DealerOdds.unit(points);
+			}
+
+			private double probability(int points) {
+				return (double) counts[points] / remaining;
+			}
+
+			private double stand(int value) {
+				if (value > 21) {
+					return -1;
+				}
+				double[] dealer = odds.probabilities(upcard, key, counts, remaining);
+				double ev = dealer[DealerOdds.BUST];
+				for (int outcome = 0; outcome < DealerOdds.BUST; outcome++) {
+					int total = 17 + outcome;
+					ev += value > total ? dealer[outcome] : value < total ? -dealer[outcome] : 0;
+				}
+				return ev / (1 - dealer[DealerOdds.BLACKJACK]);
+			}
+
+			private double hit(int hard, boolean ace) {
+				double ev = 0;
+				for (int points = 1; points <= 10; points++) {
+					if (counts[points] > 0) {
+						double p = probability(points);
+						take(points);
+						ev += p * best(hard + points, ace || points == 1);
+						put(points);
+					}
+				}
+				return ev;
+			}
+
+			private double best(int hard, boolean ace) {
+				if (hard > 21) {
+					return -1;
+				}
+				int value = value(hard, ace);
+				if (value == 21) {
+					return stand(21);
+				}
+				int state = hard << 1 | (ace ? 1 : 0);
+				int slot = find(key, state);
+				if (states[slot] != 0) {
+					return values[slot];
+				}
+				double result = Math.max(stand(value), hit(hard, ace));
+
+				slot = find(key, state);
+				keys[slot] = key;
+				states[slot] = state;
+				values[slot] = result;
+				if (++size * 2 > keys.length) {
+					grow();
+				}
+				return result;
+			}
+
+			private double doubleDown(int hard, boolean ace) {
+				double ev = 0;
+				for (int points = 1; points <= 10; points++) {
+					if (counts[points] > 0) {
+						double p = probability(points);
+						take(points);
+						ev += p * stand(value(hard + points, ace || points == 1));
+						put(points);
+					}
+				}
+				return 2 * ev;
+			}
+
+			// One split hand; the other hand's card is out of the shoe, its draws are not
+			private double splitHand(int card) {
+				double ev = 0;
+				for (int points = 1; points <= 10; points++) {
+					if (counts[points] > 0) {
+						double p = probability(points);
+						take(points);
+						int hard = card + points;
+						boolean ace = card == 1 || points == 1;
+						double hand;
+						if (card == 1) {
+							hand = stand(value(hard, ace));
+						} else {
+							hand = best(hard, ace);
+							if (rules.doubleAfterSplit()) {
+								hand = Math.max(hand, doubleDown(hard, ace));
+							}
+						}
+						ev += p * hand;
+						put(points);
+					}
+				}
+				return 2 * ev;
+			}
+
+			// The hand's cards must already be out of the shoe; pair is the points of a two-card pair, or 0
+			private double[] evaluate(int hard, boolean ace, int pair) {
+				double[] ev = new double[plays.length];
+
+				ev[Play.STAND.ordinal()] = stand(value(hard, ace));
+				ev[Play.HIT.ordinal()] = hit(hard, ace);
+				ev[Play.DOUBLE.ordinal()] = doubleDown(hard, ace);
+				ev[Play.SURRENDER.ordinal()] = rules.surrender() ? -0.5 : Double.NaN;
+				if (pair > 0) {
+					put(pair);
+					ev[Play.SPLIT.ordinal()] = splitHand(pair);
+					take(pair);
+				} else {
+					ev[Play.SPLIT.ordinal()] = Double.NaN;
+				}
+				return ev;
+			}
+
+			// Every two-card hand except blackjack, weighted by its probability into its chart row
+			private void solveColumn() {
+				for (int first = 1; first <= 10; first++) {
+					for (int second = first; second <= 10; second++) {
+						if (first == 1 && second == 10 || counts[first] == 0) {
+							continue;
+						}
+						double weight = probability(first);
+						take(first);
+						if (counts[second] == 0) {
+							put(first);
+							continue;
+						}
+						weight *= probability(second) * (first == second ? 1 : 2);
+						take(second);
+
+						double[] ev = evaluate(first + second, first == 1 || second == 1, first == second ? first : 0);
+						int row = first == second ? BasicStrategy.PAIR + first : first == 1 ? BasicStrategy.SOFT + 11 + second : BasicStrategy.HARD + first + second;
+						weights[row] += weight;
+						for (int i = 0; i < plays.length; i++) {
+							sums[row * plays.length + i] += weight * ev[i];
+						}
+
+						put(second);
+						put(first);
+					}
+				}
+			}
+
+			private void fill(Chart chart) {
+				for (int row = 0; row < BasicStrategy.ROWS; row++) {
+					if (weights[row] > 0) {
+						for (int i = 0; i < plays.length; i++) {
+							chart.ev[(row * 10 + upcard - 1) * plays.length + i] = sums[row * plays.length + i] / weights[row];
+						}
+					}
+				}
+			}
+
+			private int find(long key, int state) {
+				int mask = keys.length - 1;
+				long hash = (key ^ (long) state << 52) * 0x9e3779b97f4a7c15L;
+				int slot = (int) (hash >>> 40) & mask;
+
+				while (states[slot] != 0 && (keys[slot] != key || states[slot] != state)) {
+					slot = (slot + 1) & mask;
+				}
+				return slot;
+			}
+
+			private void grow() {
+				long[] old_keys = keys;
+				int[] old_states = states;
+				double[] old_values = values;
+
+				keys = new long[2 * old_keys.length];
+				states = new int[keys.length];
+				values = new double[keys.length];
+				for (int i = 0; i < old_keys.length; i++) {
+					if (old_states[i] != 0) {
+						int slot = find(old_keys[i], old_states[i]);
+						keys[slot] = old_keys[i];
+						states[slot] = old_states[i];
+						values[slot] = old_values[i];
+					}
+				}
+			}
+		}
+	}
+
+	// Solved strategy chart: for every BasicStrategy row and upcard, the mean EV of each play over the
+	// two-card hands of that row. Pair rows hold the hands of a pair, hard and soft rows the rest.
+	public static class Chart {
+
+		private static final Play[] plays = Play.values();
+
+		private TableRules rules;
+		private double[] ev = new double[BasicStrategy.ROWS * 10 * plays.length];
+
+		private Chart(TableRules rules) {
+			this.rules = rules;
+			Arrays.fill(ev, Double.NaN);
+		}
+
+		public TableRules getRules() {
+			return rules;
+		}
+
+		// EV of a play for a row (see BasicStrategy) against an upcard in points, ace as 1; NaN if the
+		// row was not solved or the play is not allowed
+		public double ev(int row, int upcard, Play play) {
+			return ev[(row * 10 + upcard - 1) * plays.length + play.ordinal()];
+		}
+
+		private boolean solved(int row) {
+			return !Double.isNaN(ev(row, 1, Play.STAND)) || !Double.isNaN(ev(row, 10, Play.STAND));
+		}
+
+		// Chart code for a cell, as in BasicStrategy.generate()
+		public char code(int row, int upcard) {
+			double hit = ev(row, upcard, Play.HIT), stand = ev(row, upcard, Play.STAND);
+			boolean hits = hit > stand;
+			double best = Math.max(hit, stand);
+
+			if (row >= BasicStrategy.PAIR) {
+				return ev(row, upcard, Play.SPLIT) > Math.max(best, Math.max(ev(row, upcard, Play.DOUBLE), rules.surrender() ? -0.5 : -1)) ? 'P' : '-';
+			}
+			double doubled = ev(row, upcard, Play.DOUBLE);
+			double surrender = rules.surrender() ? -0.5 : Double.NEGATIVE_INFINITY;
+			if (surrender > best && surrender >= doubled) {
+				return hits ? 'R' : 'r';
+			}
+			if (doubled > best) {
+				return hits ? 'D' : 'B';
+			}
+			return hits ? 'H' : 'S';
+		}
+
+		// Two-card charts written like BasicStrategy's, upcards 2 to 10 and then the ace
+		private String chartRow(int row) {
+			StringBuilder str = new StringBuilder();
+			for (int i = 0; i < 10; i++) {
+				str.append(code(row, i == 9 ? 1 : i + 2));
+			}
+			return str.toString();
+		}
+
+		// BasicStrategy that plays this chart. Rows that no two-card hand reaches hit below 12 (hard) or
+		// 18 (soft) and stand otherwise.
+		public BasicStrategy strategy(long bet) {
+			byte[] table = new byte[BasicStrategy.ROWS * 10];
+			for (int total = 0; total <= 21; total++) {
+				int hard = BasicStrategy.HARD + total, soft = BasicStrategy.SOFT + total;
+				BasicStrategy.chart(table, hard, solved(hard) ? chartRow(hard) : total < 12 ? "HHHHHHHHHH" : "SSSSSSSSSS", rules.surrender());
+				BasicStrategy.chart(table, soft, solved(soft) ? chartRow(soft) : total < 18 ? "HHHHHHHHHH" : "SSSSSSSSSS", rules.surrender());
+			}
+			for (int points = 1; points <= 10; points++) {
+				BasicStrategy.chart(table, BasicStrategy.PAIR + points, chartRow(BasicStrategy.PAIR + points), rules.surrender());
+			}
+			return new BasicStrategy(table, bet);
+		}
+
+		public String toString() {
+			StringBuilder str = new StringBuilder(rules.toString()).append("\n\n      23456789 T A\n");
+			for (int row = 0; row < BasicStrategy.ROWS; row++) {
+				if (!solved(row)) {
+					continue;
+				}
+				String label;
+				if (row >= BasicStrategy.PAIR) {
+					int points = row - BasicStrategy.PAIR;
+					String card = points == 1 ? "A" : Integer.toString(points);
+					label = card + "," + card;
+				} else if (row >= BasicStrategy.SOFT) {
+					label = "A," + (row - BasicStrategy.SOFT - 11);
+				} else {
+					label = Integer.toString(row - BasicStrategy.HARD);
+				}
+				String cells = chartRow(row);
+				str.append(String.format("%-6s", label)).append(cells, 0, 8).append(' ').append(cells.charAt(8)).append(' ').append(cells.charAt(9)).append('\n');
+			}
+			return str.toString();
+		}
+	}
+
+	// Bounded map from packed long keys to long values that any number of threads can share. Keys are
+	// spread over segments, each a primitive open-addressing table with linear probing behind a
+	// StampedLock: lookups are optimistic reads that take no lock at all unless a write got in the way,
+	// and only inserts lock their segment. A full segment evicts with CLOCK: entries hit since the hand
+	// last passed them get a second chance.
+	public static class StateCache {
+
+		private static final int SEGMENTS = 16;
+
+		private Segment[] segments = new Segment[SEGMENTS];
+		private LongAdder hits = new LongAdder();
+		private LongAdder misses = new LongAdder();
+		private LongAdder evictions = new LongAdder();
+
+		public StateCache(int capacity) throws IllegalArgumentException {
+			if (capacity < SEGMENTS) {
+				throw new IllegalArgumentException("Capacity must be at least " + SEGMENTS + ".");
+			}
+			for (int i = 0; i < SEGMENTS; i++) {
+				segments[i] = new Segment((capacity + SEGMENTS - 1) / SEGMENTS);
+			}
+		}
+
+		private static long hash(long key) {
+			long h = key * 0x9e3779b97f4a7c15L;
+			return h ^ (h >>> 29);
+		}
+
+		// The value cached for key, or absent
+		public long get(long key, long absent) {
+			long h = hash(key);
+			Segment segment = segments[(int) (h >>> 60)];
+			long stamp = segment.lock.tryOptimisticRead();
+			int slot = segment.find(key, h);
+			long value = segment.values[slot];
+			boolean found = segment.used[slot];
+
+			if (!segment.lock.validate(stamp)) {
+				stamp = segment.lock.readLock();
+				try {
+					slot = segment.find(key, h);
+					value = segment.values[slot];
+					found = segment.used[slot];
+				} finally {
+					segment.lock.unlockRead(stamp);
+				}
+			}
+
+			if (found) {
+				// Racing a writer can at worst mark the wrong slot, which only costs CLOCK a little accuracy
+				segment.referenced[slot] = true;
+				hits.increment();
+				return value;
+			}
+			misses.increment();
+			return absent;
+		}
+
+		public void put(long key, long value) {
+			long h = hash(key);
+			Segment segment = segments[(int) (h >>> 60)];
+			long stamp = segment.lock.writeLock();
+			try {
+				if (segment.put(key, h, value)) {
+					evictions.increment();
+				}
+			} finally {
+				segment.lock.unlockWrite(stamp);
+			}
+		}
+
+		public int size() {
+			int size = 0;
+			for (int i = 0; i < SEGMENTS; i++) {
+				long stamp = segments[i].lock.readLock();
+				size += segments[i].size;
+				segments[i].lock.unlockRead(stamp);
+			}
+			return size;
+		}
+
+		public long getHits() {
+			return hits.sum();
+		}
+
+		public long getMisses() {
+			return misses.sum();
+		}
+
+		public long getEvictions() {
+			return evictions.sum();
+		}
+
+		public double hitRate() {
+			long h = hits.sum(), lookups = h + misses.sum();
+			return lookups == 0 ? 0 : (double) h / lookups;
+		}
+
+		public String toString() {
+			return "Cache: " + size() + " entries, " + getHits() + " hits, " + getMisses() + " misses (" + String.format("%.4f%%", 100 * hitRate()) + " hit rate), " + getEvictions() + " evictions";
+		}
+
+		// At most limit entries in a table twice that size, so probes always meet an empty slot
+		private static class Segment {
+
+			private StampedLock lock = new StampedLock();
+			private long[] keys;
+			private long[] values;
+			private boolean[] used;
+			private boolean[] referenced;
+			private int limit;
+			private int size;
+			private int hand;
+
+			private Segment(int limit) {
+				this.limit = limit;
+				int length = Integer.highestOneBit(Math.max(2, 2 * limit - 1)) << 1;
+				keys = new long[length];
+				values = new long[length];
+				used = new boolean[length];
+				referenced = new boolean[length];
+			}
+
+			private int home(long h) {
+				return (int) h & (keys.length - 1);
+			}
+
+			// Slot holding key, or the empty slot that ends its probe sequence
+			private int find(long key, long h) {
+				int mask = keys.length - 1;
+				int slot = home(h);
+				while (used[slot] && keys[slot] != key) {
+					slot = (slot + 1) & mask;
+				}
+				return slot;
+			}
+
+			// True if an entry had to be evicted to make room
+			private boolean put(long key, long h, long value) {
+				int slot = find(key, h);
+				if (used[slot]) {
+					values[slot] = value;
+					return false;
+				}
+
+				boolean evicted = false;
+				if (size == limit) {
+					evict();
+					evicted = true;
+					slot = find(key, h);
+				}
+				keys[slot] = key;
+				values[slot] = value;
+				referenced[slot] = false;
+				used[slot] = true;
+				size++;
+				return evicted;
+			}
+
+			private void evict() {
+				int mask = keys.length - 1;
+				while (true) {
+					int slot = hand;
+					hand = (hand + 1) & mask;
+					if (used[slot]) {
+						if (referenced[slot]) {
+							referenced[slot] = false;
+						} else {
+							remove(slot);
+							return;
+						}
+					}
+				}
+			}
+
+			// Backward-shift deletion: entries further along the probe sequence move up into the hole
+			// when their home slot allows it, so lookups never need tombstones
+			private void remove(int hole) {
+				int mask = keys.length - 1;
+				int slot = hole;
+				while (true) {
+					slot = (slot + 1) & mask;
+					if (!used[slot]) {
+						break;
+					}
+					int home = home(hash(keys[slot]));
+					if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+						keys[hole] = keys[slot];
+						values[hole] = values[slot];
+						referenced[hole] = referenced[slot];
+						hole = slot;
+					}
+				}
+				used[hole] = false;
+				referenced[hole] = false;
+				size--;
+			}
+		}
+	}
+
+	// Plays the composition-dependent best play: the highest EV among the allowed plays for the cards
+	// actually in the hand, against the full shoe of the rules less those cards and the upcard. The
+	// shoe is the same for every decision, so the canonical state is just the hand's cards by points,
+	// the upcard and the allowed plays, and once a state has been solved the decision is one probe
+	// into the cache. One solver and one cache can serve every strategy of a parallel simulation.
+	public static class CompositionStrategy implements Strategy {
+
+		private static final Play[] plays = Play.values();
+
+		private StrategySolver solver;
+		private StateCache cache;
+		private long bet;
+
+		public CompositionStrategy(StrategySolver solver, StateCache cache, long bet) {
+			this.solver = solver;
+			this.cache = cache;
+			this.bet = bet;
+		}
+
+		// Hand counts in the low 50 bits, then the upcard and the allowed plays mask
+		public static long key(Hand hand, int upcard, int allowed) {
+			return hand.counts() | (long) upcard << 50 | (long) allowed << 54;
+		}
+
+		public long placeBet(Player player) {
+			return bet;
+		}
+
+		public Play choosePlay(Player player, Card dealerUpcard, int allowed) {
+			long key = key(player.hand(), dealerUpcard.points(), allowed);
+			long play = cache.get(key, -1);
+			if (play < 0) {
+				play = solver.bestPlay(player.hand(), dealerUpcard.points(), allowed).ordinal();
+				cache.put(key, play);
+			}
+			return plays[(int) play];
+		}
+	}
+
+	// Online statistics of what a table settles. The net result of every seat is folded in with
+	// Welford's update, so the mean and variance stay accurate over billions of hands without keeping
+	// them; final hand states and dealer outcomes are plain counters. Not thread-safe: give each table
+	// its own and merge them.
+	public static class Statistics {
+
+		// Two-sided 95% normal quantile
+		public static final double Z_95 = 1.959963984540054;
+
+		private static final int STATES = Player.State.values().length;
+
+		private long count;
+		private double mean;
+		private double m2;
+		private long[] states = new long[STATES];
+		private long[] dealer = new long[DealerOdds.OUTCOMES];
+
+		// Net result of a seat for a round, in cents
+		public void seatSettled(long net) {
+			double x = (double) net / Money.UNIT;
+			count++;
+			double delta = x - mean;
+			mean += delta / count;
+			m2 += delta * (x - mean);
+		}
+
+		public void handSettled(Player.State state) {
+			states[state.ordinal()]++;
+		}
+
+		// Outcome as in DealerOdds: 0-4 for 17-21, then BUST and BLACKJACK
+		public void dealerFinished(int outcome) {
+			dealer[outcome]++;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		// Mean net per hand, in units
+		public double mean() {
+			return mean;
+		}
+
+		public double variance() {
+			return count < 2 ? 0 : m2 / (count - 1);
+		}
+
+		public double standardError() {
+			return count < 2 ? Double.POSITIVE_INFINITY : Math.sqrt(variance() / count);
+		}
+
+		// Half the width of the confidence interval of the mean for the normal quantile z
+		public double confidenceHalfWidth(double z) {
+			return z * standardError();
+		}
+
+		public long getHands(Player.State state) {
+			return states[state.ordinal()];
+		}
+
+		public double frequency(Player.State state) {
+			long hands = 0;
+			for (int i = 0; i < STATES; i++) {
+				hands += states[i];
+			}
+			return hands == 0 ? 0 : (double) states[state.ordinal()] / hands;
+		}
+
+		public long getDealerOutcomes(int outcome) {
+			return dealer[outcome];
+		}
+
+		private static int snapshotSize() {
+			return 24 + 8 * (STATES + DealerOdds.OUTCOMES);
+		}
+
+		private void save(ByteBuffer buffer) {
+			buffer.putLong(count).putDouble(mean).putDouble(m2);
+			for (int i = 0; i < STATES; i++) {
+				buffer.putLong(states[i]);
+			}
+			for (int i = 0; i < DealerOdds.OUTCOMES; i++) {
+				buffer.putLong(dealer[i]);
+			}
+		}
+
+		private void restore(ByteBuffer buffer) {
+			count = buffer.getLong();
+			mean = buffer.getDouble();
+			m2 = buffer.getDouble();
+			for (int i = 0; i < STATES; i++) {
+				states[i] = buffer.getLong();
+			}
+			for (int i = 0; i < DealerOdds.OUTCOMES; i++) {
+				dealer[i] = buffer.getLong();
+			}
+		}
+
+		// Chan's pairwise update, so shards can be combined in any order
+		public void merge(Statistics other) {
+			if (other.count == 0) {
+				return;
+			}
+			long total = count + other.count;
+			double delta = other.mean - mean;
+			mean += delta * other.count / total;
+			m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+			count = total;
+			for (int i = 0; i < STATES; i++) {
+				states[i] += other.states[i];
+			}
+			for (int i = 0; i < DealerOdds.OUTCOMES; i++) {
+				dealer[i] += other.dealer[i];
+			}
+		}
+
+		public String toString() {
+			double half = confidenceHalfWidth(Z_95);
+			StringBuilder str = new StringBuilder();
+			str.append(String.format("Mean net per hand: %.6f +/- %.6f (95%%), standard error %.6f, variance %.6f\nHands by final state:", mean, half, standardError(), variance()));
+			for (Player.State state : Player.State.values()) {
+				if (states[state.ordinal()] > 0) {
+					str.append(String.format(" %s %.4f%%", state, 100 * frequency(state)));
+				}
+			}
+			str.append("\nDealer outcomes:");
+			long rounds = 0;
+			for (int i = 0; i < DealerOdds.OUTCOMES; i++) {
+				rounds += dealer[i];
+			}
+			for (int i = 0; i < DealerOdds.OUTCOMES; i++) {
+				str.append(String.format(" %s %.4f%%", DealerOdds.outcomeString(i), rounds == 0 ? 0 : 100.0 * dealer[i] / rounds));
+			}
+			return str.toString();
+		}
+	}
+
+	public static class SimulationResult {
+
+		private long rounds;
+		private long wins;
+		private long losses;
+		private long pushes;
+		private long net;
+		private Statistics statistics = new Statistics();
+
+		public long getRounds() {
+			return rounds;
+		}
+
+		public long getWins() {
+			return wins;
+		}
+
+		public long getLosses() {
+			return losses;
+		}
+
+		public long getPushes() {
+			return pushes;
+		}
+
+		public long getHands() {
+			return wins + losses + pushes;
+		}
+
+		// In cents
+		public long getNet() {
+			return net;
+		}
+
+		// In units
+		public double netPerHand() {
+			long hands = getHands();
+			return hands == 0 ? 0 : (double) net / hands / Money.UNIT;
+		}
+
+		public Statistics getStatistics() {
+			return statistics;
+		}
+
+		public void merge(SimulationResult other) throws ArithmeticException {
+			statistics.merge(other.statistics);
+			rounds += other.rounds;
+			wins += other.wins;
+			losses += other.losses;
+			pushes += other.pushes;
+			net = Math.addExact(net, other.net);
+		}
+
+		private static int snapshotSize() {
+			return 40 + Statistics.snapshotSize();
+		}
+
+		private void save(ByteBuffer buffer) {
+			buffer.putLong(rounds).putLong(wins).putLong(losses).putLong(pushes).putLong(net);
+			statistics.save(buffer);
+		}
+
+		private void restore(ByteBuffer buffer) {
+			rounds = buffer.getLong();
+			wins = buffer.getLong();
+			losses = buffer.getLong();
+			pushes = buffer.getLong();
+			net = buffer.getLong();
+			statistics.restore(buffer);
+		}
+
+		private void record(long delta) throws ArithmeticException {
+			if (delta > 0) {
+				wins++;
+			} else if (delta < 0) {
+				losses++;
+			} else {
+				pushes++;
+			}
+			net = Math.addExact(net, delta);
+		}
+
+		public String toString() {
+			return "Rounds: " + rounds + "\nHands: " + getHands() + " (won " + wins + ", lost " + losses + ", pushed " + pushes + ")\nNet: " + Money.format(net) + "\nNet per hand: " + netPerHand() + "\n" + statistics;
+		}
+	}
+
+	public static class Simulator {
+
+		public static final int SNAPSHOT_MAGIC = 0x424A534E;
+		public static final int SNAPSHOT_VERSION = 4;
+
+		private Blackjack table;
+		private Player[] players;
+		private long bankroll;
+
+		// Standard rules dealt from the given shoe
+		public Simulator(Strategy[] strategies, Shoe deck, long bankroll) throws IllegalArgumentException {
+			this(strategies, TableRules.STANDARD.forShoe(deck), deck, bankroll);
+		}
+
+		public Simulator(Strategy[] strategies, TableRules rules, Shoe deck, long bankroll) throws IllegalArgumentException {
+			if (bankroll <= 0) {
+				throw new IllegalArgumentException("Bankroll must be positive.");
+			}
+			players = new Player[strategies.length];
+			for (int i = 0; i < strategies.length; i++) {
+				players[i] = new Player("Bot " + (i + 1), bankroll, strategies[i]);
+			}
+			this.bankroll = bankroll;
+			table = new Blackjack(players, deck, rules);
+			table.setHeadless(true);
+			deck.shuffle();
+		}
+
+		public void setListener(RoundListener listener) {
+			table.setListener(listener);
+		}
+
+		public void setHouse(HouseTotals house) {
+			table.setHouse(house);
+		}
+
+		public void setMetrics(Metrics metrics) {
+			table.setMetrics(metrics);
+		}
+
+		// Saves the table between rounds together with the totals of the runs so far, followed by a
+		// CRC32 of everything before it. The file is written next to the path and moved over it, so a
+		// crash mid-write leaves the last checkpoint.
+		public void checkpoint(SimulationResult total, Path path) throws IOException, IllegalStateException {
+			ByteBuffer buffer = ByteBuffer.allocate(12 + table.snapshotSize() + SimulationResult.snapshotSize());
+			buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION);
+			table.save(buffer);
+			total.save(buffer);
+			CRC32 crc = new CRC32();
+			crc.update(buffer.array(), 0, buffer.position());
+			buffer.putInt((int) crc.getValue());
+			if (buffer.hasRemaining()) {
+				throw new IllegalStateException("The snapshot is " + buffer.remaining() + " bytes shorter than its size.");
+			}
+			buffer.flip();
+
+			Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(true);
+			}
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+
+		// Puts the table back as a checkpoint of a simulator with the same strategies and rules left
+		// it, and returns the totals saved with it
+		public SimulationResult restore(Path path) throws IOException, IllegalArgumentException {
+			byte[] bytes = Files.readAllBytes(path);
+			if (bytes.length < 12) {
+				throw new IllegalArgumentException("Truncated snapshot.");
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, bytes.length - 4);
+			CRC32 crc = new CRC32();
+			crc.update(bytes, 0, bytes.length - 4);
+			if ((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt()) {
+				throw new IllegalArgumentException("Snapshot checksum does not match.");
+			}
+			try {
+				if (buffer.getInt() != SNAPSHOT_MAGIC) {
+					throw new IllegalArgumentException("Not a snapshot file.");
+				}
+				int version = buffer.getInt();
+				if (version != SNAPSHOT_VERSION) {
+					throw new IllegalArgumentException("Unsupported snapshot version (" + version + ").");
+				}
+				table.restore(buffer);
+				SimulationResult total = new SimulationResult();
+				total.restore(buffer);
+				return total;
+			} catch (BufferUnderflowException e) {
+				throw new IllegalArgumentException("Truncated snapshot.", e);
+			}
+		}
+
+		public SimulationResult run(long rounds) {
+			SimulationResult result = new SimulationResult();
+			table.setStatistics(result.getStatistics());
+
+			for (long r = 0; r < rounds; r++) {
+				for (int i = 0; i < players.length; i++) {
+					players[i].setMoney(bankroll);
+				}
+				table.playRound();
+				for (int i = 0; i < players.length; i++) {
+					result.record(players[i].getMoney() - bankroll);
+				}
+				result.rounds++;
+			}
+			table.flushMetrics();
+			return result;
+		}
+	}
+
+	// Plays a basic strategy with a flat bet on many independent one-seat tables at once, each with its
+	// own shoe. The tables are held as structure of arrays, one primitive array per field with a lane
+	// per table and Player.MAX_HANDS slots per lane for split hands, and every phase of a round is a
+	// loop over all the lanes: no Player, Hand or Card objects and no virtual calls. The rules are
+	// those of the table, including the dealer peek, splits and resplit aces; seats are assumed to
+	// always cover doubles and splits, as they do in Simulator.
+	public static class BatchSimulator {
+
+		private static final Player.State[] states = Player.State.values();
+		private static final byte PLAYING = (byte) Player.State.PLAYING.ordinal();
+		private static final byte TWENTYONE = (byte) Player.State.TWENTYONE.ordinal();
+		private static final byte BLACKJACK = (byte) Player.State.BLACKJACK.ordinal();
+		private static final byte STAND = (byte) Player.State.STAND.ordinal();
+		private static final byte BUSTED = (byte) Player.State.BUSTED.ordinal();
+		private static final byte RETIRED = (byte) Player.State.RETIRED.ordinal();
+		private static final byte DEALER_BLACKJACK = (byte) Player.State.DEALER_BLACKJACK.ordinal();
+		private static final int MAX_HANDS = Player.MAX_HANDS;
+
+		private byte[] table;
+		private long bet;
+		private int softStand;
+		private int blackjackPays;
+		private int blackjackPer;
+		private int firstPlays;
+		private int splitPlays;
+		private boolean resplitAces;
+		private int lanes;
+		private Rng rng;
+
+		// Each lane's shoe in points, drawn from the top down; remaining cards are below top
+		private int shoeSize;
+		private int cutCard;
+		private byte[] shoe;
+		private int[] top;
+
+		// Per slot
+		private byte[] hard;
+		private boolean[] ace;
+		private byte[] cards;
+		private byte[] first;
+		private byte[] second;
+		private byte[] state;
+		private long[] bets;
+
+		// Per lane
+		private byte[] hands;
+		private byte[] dealerHard;
+		private boolean[] dealerAce;
+		private byte[] upcard;
+		private boolean[] dealerBlackjack;
+		private long[] net;
+
+		public BatchSimulator(TableRules rules, BasicStrategy strategy, int lanes, Rng rng) throws IllegalArgumentException {
+			if (lanes < 1) {
+				throw new IllegalArgumentException("Number of lanes must be at least 1.");
+			}
+			table = strategy.table;
+			bet = strategy.bet;
+			softStand = rules.hitsSoft17() ? 18 : 17;
+			blackjackPays = rules.getBlackjackPays();
+			blackjackPer = rules.getBlackjackPer();
+			firstPlays = Play.HIT.bit() | Play.STAND.bit() | Play.DOUBLE.bit() | Play.SPLIT.bit() | (rules.surrender() ? Play.SURRENDER.bit() : 0);
+			splitPlays = Play.HIT.bit() | Play.STAND.bit() | Play.SPLIT.bit() | (rules.doubleAfterSplit() ? Play.DOUBLE.bit() : 0);
+			resplitAces = rules.resplitAces();
+			this.lanes = lanes;
+			this.rng = rng;
+
+			byte[] deck = Card.standardDeck();
+			shoeSize = rules.getDecks() * deck.length;
+			cutCard = shoeSize - (int) Math.round(shoeSize * rules.getPenetration());
+			shoe = new byte[lanes * shoeSize];
+			for (int i = 0; i < shoe.length; i++) {
+				shoe[i] = (byte) Card.of(deck[i % deck.length]).points();
+			}
+			top = new int[lanes];
+			for (int lane = 0; lane < lanes; lane++) {
+				shuffle(lane);
+			}
+
+			int slots = lanes * MAX_HANDS;
+			hard = new byte[slots];
+			ace = new boolean[slots];
+			cards = new byte[slots];
+			first = new byte[slots];
+			second = new byte[slots];
+			state = new byte[slots];
+			bets = new long[slots];
+
+			hands = new byte[lanes];
+			dealerHard = new byte[lanes];
+			dealerAce = new boolean[lanes];
+			upcard = new byte[lanes];
+			dealerBlackjack = new boolean[lanes];
+			net = new long[lanes];
+		}
+
+		public int getLanes() {
+			return lanes;
+		}
+
+		// Rounds are played lanes at a time, so the last batch may play a few more than asked for
+		public SimulationResult run(long rounds) {
+			SimulationResult result = new SimulationResult();
+			Statistics statistics = result.getStatistics();
+
+			for (long r = 0; r < rounds; r += lanes) {
+				deal();
+				playHands();
+				playDealers();
+				settle();
+
+				for (int lane = 0; lane < lanes; lane++) {
+					result.record(net[lane]);
+					statistics.seatSettled(net[lane]);
+					for (int h = 0; h < hands[lane]; h++) {
+						statistics.handSettled(states[state[lane * MAX_HANDS + h]]);
+					}
+					statistics.dealerFinished(dealerOutcome(lane));
+					// The table reshuffles after settling once the cut card is out
+					if (top[lane] <= cutCard) {
+						shuffle(lane);
+					}
+				}
+				result.rounds += lanes;
+			}
+			return result;
+		}
+
+		private void shuffle(int lane) {
+			int base = lane * shoeSize;
+			for (int i = shoeSize - 1; i > 0; i--) {
+				int j = rng.nextInt(i + 1);
+				byte card = shoe[base + i];
+				shoe[base + i] = shoe[base + j];
+				shoe[base + j] = card;
+			}
+			top[lane] = shoeSize;
+		}
+
+		// A lane that runs dry mid-round reshuffles all its cards, the ones on its table included
+		private int draw(int lane) {
+			if (top[lane] == 0) {
+				shuffle(lane);
+			}
+			return shoe[lane * shoeSize + --top[lane]];
+		}
+
+		private static int value(int hard, boolean ace) {
+			return ace && hard <= 11 ? hard + 10 : hard;
+		}
+
+		// In the table's order: a card to the seat, one to the dealer, the second to the seat, the hole card
+		private void deal() {
+			for (int lane = 0; lane < lanes; lane++) {
+				int slot = lane * MAX_HANDS;
+				int one = draw(lane);
+				int up = draw(lane);
+				int two = draw(lane);
+				int hole = draw(lane);
+
+				hard[slot] = (byte) (one + two);
+				ace[slot] = one == 1 || two == 1;
+				cards[slot] = 2;
+				first[slot] = (byte) one;
+				second[slot] = (byte) two;
+				state[slot] = PLAYING;
+				bets[slot] = bet;
+				hands[lane] = 1;
+
+				upcard[lane] = (byte) up;
+				dealerHard[lane] = (byte) (up + hole);
+				dealerAce[lane] = up == 1 || hole == 1;
+				dealerBlackjack[lane] = dealerAce[lane] && up + hole == 11;
+			}
+		}
+
+		// Nobody plays against a dealer blackjack; otherwise each lane plays its hands left to right,
+		// split hands getting their second card when they come into play
+		private void playHands() {
+			for (int lane = 0; lane < lanes; lane++) {
+				int base = lane * MAX_HANDS;
+				if (dealerBlackjack[lane]) {
+					state[base] = ace[base] && hard[base] == 11 ? BLACKJACK : DEALER_BLACKJACK;
+					continue;
+				}
+				if (ace[base] && hard[base] == 11) {
+					state[base] = BLACKJACK;
+					continue;
+				}
+				for (int h = 0; h < hands[lane]; h++) {
+					int slot = base + h;
+					if (cards[slot] == 1) {
+						dealSplitCard(lane, slot);
+					}
+					while (state[slot] == PLAYING) {
+						play(lane, slot);
+					}
+				}
+			}
+		}
+
+		private void hit(int lane, int slot) {
+			int card = draw(lane);
+			if (cards[slot] == 1) {
+				second[slot] = (byte) card;
+			}
+			hard[slot] += card;
+			ace[slot] |= card == 1;
+			cards[slot]++;
+		}
+
+		private void dealSplitCard(int lane, int slot) {
+			hit(lane, slot);
+			if (first[slot] == 1) {
+				if (!resplitAces || second[slot] != 1 || hands[lane] == MAX_HANDS) {
+					state[slot] = STAND;
+				}
+			} else if (value(hard[slot], ace[slot]) == 21) {
+				state[slot] = TWENTYONE;
+			}
+		}
+
+		private void play(int lane, int slot) {
+			boolean split = hands[lane] > 1;
+			int allowed = Play.HIT.bit() | Play.STAND.bit();
+			int pair = 0;
+			if (cards[slot] == 2) {
+				allowed = split ? splitPlays : firstPlays;
+				if (first[slot] == second[slot] && hands[lane] < MAX_HANDS) {
+					pair = first[slot];
+				} else {
+					allowed &= ~Play.SPLIT.bit();
+				}
+				if (split && first[slot] == 1) {
+					allowed &= Play.STAND.bit() | Play.SPLIT.bit();
+				}
+			}
+
+			int value = value(hard[slot], ace[slot]);
+			Play play = BasicStrategy.lookup(table, hard[slot], value != hard[slot], pair, upcard[lane], allowed);
+			switch(play) {
+				case HIT:
+					hit(lane, slot);
+					break;
+				case STAND:
+					state[slot] = STAND;
+					return;
+				case DOUBLE:
+					bets[slot] *= 2;
+					hit(lane, slot);
+					if (hard[slot] <= 21) {
+						state[slot] = STAND;
+						return;
+					}
+					break;
+				case SPLIT:
+					int other = lane * MAX_HANDS + hands[lane]++;
+					hard[other] = first[slot];
+					ace[other] = first[slot] == 1;
+					cards[other] = 1;
+					first[other] = first[slot];
+					state[other] = PLAYING;
+					bets[other] = bets[slot];
+					hard[slot] = first[slot];
+					cards[slot] = 1;
+					dealSplitCard(lane, slot);
+					return;
+				case SURRENDER:
+					state[slot] = RETIRED;
+					return;
+			}
+
+			if (hard[slot] > 21) {
+				state[slot] = BUSTED;
+			} else if (value(hard[slot], ace[slot]) == 21) {
+				state[slot] = TWENTYONE;
+			}
+		}
+
+		// The dealer plays out every hand, as the table does, busted seats or not
+		private void playDealers() {
+			for (int lane = 0; lane < lanes; lane++) {
+				if (dealerBlackjack[lane]) {
+					continue;
+				}
+				int total = dealerHard[lane];
+				boolean soft = dealerAce[lane];
+				while (value(total, soft) < (soft && total <= 11 ? softStand : 17)) {
+					int card = draw(lane);
+					total += card;
+					soft |= card == 1;
+				}
+				dealerHard[lane] = (byte) total;
+				dealerAce[lane] = soft;
+			}
+		}
+
+		private int dealerOutcome(int lane) {
+			if (dealerBlackjack[lane]) {
+				return DealerOdds.BLACKJACK;
+			}
+			int value = value(dealerHard[lane], dealerAce[lane]);
+			return value > 21 ? DealerOdds.BUST : value - 17;
+		}
+
+		private void settle() {
+			for (int lane = 0; lane < lanes; lane++) {
+				int dealer = value(dealerHard[lane], dealerAce[lane]);
+				boolean blackjack = dealerBlackjack[lane];
+				long total = 0;
+
+				for (int h = 0; h < hands[lane]; h++) {
+					int slot = lane * MAX_HANDS + h;
+					long stake = bets[slot];
+					long paid;
+					if (blackjack) {
+						paid = state[slot] == BLACKJACK ? stake : 0;
+					} else if (state[slot] == BLACKJACK) {
+						paid = stake + Money.ratio(stake, blackjackPays, blackjackPer);
+					} else if (state[slot] == RETIRED) {
+						paid = stake / 2;
+					} else if (state[slot] == BUSTED) {
+						paid = 0;
+					} else {
+						int value = value(hard[slot], ace[slot]);
+						paid = dealer > 21 || value > dealer ? 2 * stake : value == dealer ? stake : 0;
+					}
+					total += paid - stake;
+				}
+				net[lane] = total;
+			}
+		}
+	}
+
+	// Shards the rounds over a fork/join pool. Every shard plays on its own table and shoe, with an
+	// Rng split off the master one, so a run depends on the seed and shard count but not on the
+	// number of threads or on how the pool schedules the shards.
+	public static class ParallelSimulator {
+
+		private Supplier<Strategy[]> strategies;
+		private TableRules rules;
+		private long bankroll;
+		private Rng rng;
+		private int shards;
+		private HouseTotals house = new HouseTotals();
+		private Metrics metrics = new Metrics();
+
+		public ParallelSimulator(Supplier<Strategy[]> strategies, TableRules rules, long bankroll, Rng rng, int shards) throws IllegalArgumentException {
+			if (shards < 1) {
+				throw new IllegalArgumentException("Number of shards must be at least 1.");
+			}
+			this.strategies = strategies;
+			this.rules = rules;
+			this.bankroll = bankroll;
+			this.rng = rng;
+			this.shards = shards;
+		}
+
+		public SimulationResult run(long rounds, ForkJoinPool pool) {
+			return pool.invoke(new Shard(rounds, shards, rng.split()));
+		}
+
+		public SimulationResult run(long rounds) {
+			return run(rounds, ForkJoinPool.commonPool());
+		}
+
+		// Runs batches of rounds until the 95% confidence interval of the net per hand is narrower than
+		// plus or minus halfWidth units, or until maxRounds have been played. Every batch takes a new
+		// split of the Rng, so a seeded run still stops at the same place.
+		public SimulationResult runUntil(double halfWidth, long batch, long maxRounds, ForkJoinPool pool) throws IllegalArgumentException {
+			if (batch < 1) {
+				throw new IllegalArgumentException("Batch must be at least 1 round.");
+			}
+			SimulationResult result = new SimulationResult();
+			while (result.getRounds() < maxRounds) {
+				result.merge(run(Math.min(batch, maxRounds - result.getRounds()), pool));
+				if (result.getStatistics().confidenceHalfWidth(Statistics.Z_95) < halfWidth) {
+					break;
+				}
+			}
+			return result;
+		}
+
+		// Totals of every table this simulator has run, across all runs
+		public HouseTotals getHouse() {
+			return house;
+		}
+
+		public Metrics getMetrics() {
+			return metrics;
+		}
+
+		// Fork/join tasks are never serialized
+		@SuppressWarnings("serial")
+		private class Shard extends RecursiveTask<SimulationResult> {
+
+			private long rounds;
+			private int shards;
+			private Rng rng;
+
+			private Shard(long rounds, int shards, Rng rng) {
+				this.rounds = rounds;
+				this.shards = shards;
+				this.rng = rng;
+			}
+
+			protected SimulationResult compute() {
+				if (shards == 1) {
+					Simulator simulator = new Simulator(strategies.get(), rules, rules.newShoe(rng), bankroll);
+					simulator.setHouse(house);
+					simulator.setMetrics(metrics);
+					return simulator.run(rounds);
+				}
+
+				int left_shards = shards / 2;
+				long left_rounds = rounds * left_shards / shards;
+				Shard right = new Shard(rounds - left_rounds, shards - left_shards, rng.split());
+				Shard left = new Shard(left_rounds, left_shards, rng);
+
+				right.fork();
+				SimulationResult result = left.compute();
+				result.merge(right.join());
+				return result;
+			}
+		}
+	}
+
+	// The hot paths measured by the JMH benchmarks in the benchmarks module, on a headless table with
+	// the cards of one round already dealt and played. Cases that need cards rewind the shoe instead of
+	// shuffling it, so no shuffles are mixed into them, and hand valuation walks a pool of dealt hands
+	// so the JIT cannot hoist the reads of one unchanging hand out of the benchmark loop.
+	static class HotPaths {
+
+		static final long BET = Money.of(10);
+		static final long BANKROLL = Money.of(1000);
+
+		private static final int POOL = 4096;
+
+		private Blackjack table;
+		private Hand[] pool = pool(POOL);
+		private int next;
+
+		HotPaths(int players) {
+			Player[] seats = new Player[players];
+			for (int i = 0; i < players; i++) {
+				seats[i] = new Player("Bot " + (i + 1), BANKROLL, new MimicDealerStrategy(BET));
+			}
+			table = new Blackjack(seats, new Shoe(6, 0.75, new XoshiroRng(players)));
+			table.setHeadless(true);
+			table.deck.shuffle();
+			table.resetPlayersStates();
+			table.dealCards();
+			table.playDealer();
+		}
+
+		long shuffle() {
+			table.deck.shuffle();
+			return table.deck.remaining();
+		}
+
+		// One card per seat and one for the dealer
+		long draw() {
+			int cards = table.players.size() + 1;
+			rewind(table.deck, cards);
+			long total = 0;
+			for (int i = 0; i < cards; i++) {
+				total += table.deck.drawCode();
+			}
+			return total;
+		}
+
+		long deal() {
+			rewind(table.deck, 2 * (table.players.size() + 1));
+			table.resetPlayersStates();
+			table.dealCards();
+			table.dealer.hand().clear();
+			for (int i = 0; i < table.players.size(); i++) {
+				table.players.get(i).hand().clear();
+			}
+			return table.deck.remaining();
+		}
+
+		// One hand per seat and one for the dealer
+		long handValue() {
+			long total = 0;
+			for (int i = 0; i <= table.players.size(); i++) {
+				total += nextHand().value();
+			}
+			return total;
+		}
+
+		long isBlackjack() {
+			long count = 0;
+			for (int i = 0; i <= table.players.size(); i++) {
+				if (nextHand().isBlackjack()) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		long payOutWins() {
+			for (int i = 0; i < table.players.size(); i++) {
+				Player player = table.players.get(i);
+				player.setMoney(BANKROLL);
+				player.setBet(BET);
+			}
+			table.payOutWins();
+			return table.players.get(0).getMoney();
+		}
+
+		long round() {
+			for (int i = 0; i < table.players.size(); i++) {
+				table.players.get(i).setMoney(BANKROLL);
+			}
+			table.playRound();
+			return table.players.get(0).getMoney();
+		}
+
+		private Hand nextHand() {
+			next = (next + 1) & (POOL - 1);
+			return pool[next];
+		}
+
+		// Puts every card back in the shoe, in the same order, once fewer than cards are left
+		private static void rewind(Shoe shoe, int cards) {
+			if (shoe.size < cards) {
+				shoe.size = shoe.cards.length;
+				shoe.recount();
+			}
+		}
+
+		// Hands of two to five cards dealt from a shuffled shoe
+		private static Hand[] pool(int size) {
+			Shoe shoe = new Shoe(6, 0.75, new XoshiroRng(size));
+			shoe.shuffle();
+			Hand[] hands = new Hand[size];
+			for (int i = 0; i < size; i++) {
+				hands[i] = new Hand();
+				for (int cards = 2 + i % 4; cards > 0; cards--) {
+					rewind(shoe, 1);
+					hands[i].add(shoe.draw());
+				}
+			}
+			return hands;
+		}
+	}
+
+	// Callbacks for everything that happens at a table, in the order it happens. Seats are indexes into
+	// the players still at the table; cards are Card codes.
+	public static interface RoundListener {
+
+		public static final int DEALER = -1;
+
+		public void roundStarted(long round);
+
+		// Amounts in cents
+		public void betPlaced(int seat, long bet);
+
+		// Initial deal (seat DEALER for the dealer's cards) and player hits
+		public void cardDealt(int seat, int code);
+
+		public void playChosen(int seat, Play play);
+
+		public void dealerDrew(int code);
+
+		// returned is what the player got back on top of having lost the bet, so 0 is a loss
+		public void paidOut(int seat, long bet, long returned);
+
+		public void shuffled();
+	}
+
+	// Binary encoding of table events. After an 8-byte header ("BJEL" and a version int) every record
+	// is a type byte followed by a fixed payload:
+	//   ROUND_START  long round
+	//   BET          byte seat, long bet
+	//   CARD         byte seat (-1 dealer), byte code
+	//   PLAY         byte seat, byte play ordinal
+	//   DEALER_DRAW  byte code
+	//   PAYOUT       byte seat, long bet, long returned
+	//   SHUFFLE      (no payload)
+	//   TABLE        byte decks, double penetration, byte rule flags, byte blackjack pays, byte per,
+	//                byte seats, long bankroll, long seed
+	// Amounts are in cents.
+	public static abstract class EventWriter implements RoundListener {
+
+		public static final int MAGIC = 0x424A454C;
+		public static final int VERSION = 4;
+		public static final int HEADER = 8;
+
+		public static final byte ROUND_START = 1;
+		public static final byte BET = 2;
+		public static final byte CARD = 3;
+		public static final byte PLAY = 4;
+		public static final byte DEALER_DRAW = 5;
+		public static final byte PAYOUT = 6;
+		public static final byte SHUFFLE = 7;
+		public static final byte TABLE = 8;
+
+		public static final int HIT_SOFT_17 = 1;
+		public static final int DOUBLE_AFTER_SPLIT = 2;
+		public static final int RESPLIT_ACES = 4;
+		public static final int SURRENDER = 8;
+
+		private static final int[] lengths = { 0, 9, 10, 3, 3, 2, 18, 1, 30 };
+
+		// Whole record length, type byte included
+		public static int recordLength(byte type) throws IllegalArgumentException {
+			if (type < ROUND_START || type > TABLE) {
+				throw new IllegalArgumentException("Invalid event type (" + type + ").");
+			}
+			return lengths[type];
+		}
+
+		protected abstract ByteBuffer reserve(int bytes);
+
+		protected void header() {
+			reserve(HEADER).putInt(MAGIC).putInt(VERSION);
+		}
+
+		// Everything needed to rebuild the table for a replay; seed is the XoshiroRng seed of the shoe
+		public void tableOpened(TableRules rules, int seats, long bankroll, long seed) {
+			int flags = (rules.hitsSoft17() ? HIT_SOFT_17 : 0) | (rules.doubleAfterSplit() ? DOUBLE_AFTER_SPLIT : 0) | (rules.resplitAces() ? RESPLIT_ACES : 0) | (rules.surrender() ? SURRENDER : 0);
+			reserve(30).put(TABLE).put((byte) rules.getDecks()).putDouble(rules.getPenetration()).put((byte) flags)
+				.put((byte) rules.getBlackjackPays()).put((byte) rules.getBlackjackPer()).put((byte) seats).putLong(bankroll).putLong(seed);
+		}
+
+		public void roundStarted(long round) {
+			reserve(9).put(ROUND_START).putLong(round);
+		}
+
+		public void betPlaced(int seat, long bet) {
+			reserve(10).put(BET).put((byte) seat).putLong(bet);
+		}
+
+		public void cardDealt(int seat, int code) {
+			reserve(3).put(CARD).put((byte) seat).put((byte) code);
+		}
+
+		public void playChosen(int seat, Play play) {
+			reserve(3).put(PLAY).put((byte) seat).put((byte) play.ordinal());
+		}
+
+		public void dealerDrew(int code) {
+			reserve(2).put(DEALER_DRAW).put((byte) code);
+		}
+
+		public void paidOut(int seat, long bet, long returned) {
+			reserve(18).put(PAYOUT).put((byte) seat).putLong(bet).putLong(returned);
+		}
+
+		public void shuffled() {
+			reserve(1).put(SHUFFLE);
+		}
+	}
+
+	// Append-only event log written through a memory-mapped FileChannel, remapped a chunk at a time as
+	// it fills
+	public static class EventLog extends EventWriter implements Closeable {
+
+		private static final int CHUNK = 64 << 20;
+
+		private FileChannel channel;
+		private MappedByteBuffer buffer;
+		private long mapped;
+
+		public EventLog(Path path) throws IOException {
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			map(0);
+			header();
+		}
+
+		private void map(long position) throws IOException {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, CHUNK);
+			mapped = position;
+		}
+
+		protected ByteBuffer reserve(int bytes) {
+			if (buffer.remaining() < bytes) {
+				try {
+					map(mapped + buffer.position());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			return buffer;
+		}
+
+		// Bytes written so far, header included
+		public long length() {
+			return mapped + buffer.position();
+		}
+
+		public void flush() {
+			buffer.force();
+		}
+
+		// Flushes and trims the file to the bytes actually written
+		public void close() throws IOException {
+			long length = length();
+			buffer.force();
+			buffer = null;
+			channel.truncate(length);
+			channel.close();
+		}
+	}
+
+	// Re-executes a log written by EventLog. The table is rebuilt from the TABLE record, the recorded
+	// bets and plays are fed back in as strategies, and every round has to produce exactly the same
+	// bytes again: cards, dealer draws, payouts and reshuffles included. The file is read in large
+	// blocks and each round is only scanned for its bets and plays; the check itself is a byte compare.
+	public static class Replay {
+
+		private static final int BLOCK = 1 << 20;
+		private static final Play[] plays = Play.values();
+
+		public static class Result {
+
+			private long rounds;
+			private long failedRound = -1;
+
+			public long getRounds() {
+				return rounds;
+			}
+
+			public boolean isVerified() {
+				return failedRound < 0;
+			}
+
+			// Number of the first round that did not replay identically, or -1
+			public long getFailedRound() {
+				return failedRound;
+			}
+
+			public String toString() {
+				if (isVerified()) {
+					return rounds + " rounds verified.";
+				}
+				return rounds + " rounds verified, round " + failedRound + " does not match the log.";
+			}
+		}
+
+		private static class RecordedStrategy implements Strategy {
+
+			private long bet;
+			private Play[] plays = new Play[32];
+			private int count;
+			private int next;
+
+			private void reset() {
+				bet = 0;
+				count = 0;
+				next = 0;
+			}
+
+			private void add(Play play) {
+				if (count == plays.length) {
+					plays = Arrays.copyOf(plays, 2 * count);
+				}
+				plays[count++] = play;
+			}
+
+			public long placeBet(Player player) {
+				return bet;
+			}
+
+			// Running out of recorded plays means the replay already diverged; the byte compare reports it
+			public Play choosePlay(Player player, Card dealerUpcard, int allowed) {
+				return next < count ? plays[next++] : Play.STAND;
+			}
+		}
+
+		private static class Recorder extends EventWriter {
+
+			private ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+			protected ByteBuffer reserve(int bytes) {
+				if (buffer.remaining() < bytes) {
+					ByteBuffer larger = ByteBuffer.allocate(2 * buffer.capacity());
+					buffer.flip();
+					buffer = larger.put(buffer);
+				}
+				return buffer;
+			}
+		}
+
+		private FileChannel channel;
+		private ByteBuffer block = ByteBuffer.allocateDirect(BLOCK);
+		private boolean eof;
+
+		private Replay(FileChannel channel) {
+			this.channel = channel;
+			block.flip();
+		}
+
+		// Makes at least bytes bytes available in the block, reading more of the file if needed
+		private boolean fill(int bytes) throws IOException {
+			while (block.remaining() < bytes && !eof) {
+				block.compact();
+				if (channel.read(block) < 0) {
+					eof = true;
+				}
+				block.flip();
+			}
+			return block.remaining() >= bytes;
+		}
+
+		// Length of the round starting at the current position, reading ahead until the next ROUND_START
+		private int roundLength() throws IOException {
+			int length = EventWriter.recordLength(EventWriter.ROUND_START);
+			while (true) {
+				if (!fill(length + 1)) {
+					return length;
+				}
+				byte type = block.get(block.position() + length);
+				if (type == EventWriter.ROUND_START) {
+					return length;
+				}
+				int record = EventWriter.recordLength(type);
+				if (!fill(length + record)) {
+					throw new IOException("Event log ends in the middle of a record.");
+				}
+				length += record;
+				if (length > block.capacity() / 2) {
+					throw new IOException("Round too long to replay.");
+				}
+			}
+		}
+
+		public static Result verify(Path path) throws IOException {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				return new Replay(channel).run();
+			}
+		}
+
+		private Result run() throws IOException {
+			if (!fill(EventWriter.HEADER + 30) || block.getInt() != EventWriter.MAGIC || block.getInt() != EventWriter.VERSION) {
+				throw new IOException("Not an event log.");
+			}
+			if (block.get() != EventWriter.TABLE) {
+				throw new IOException("Event log has no table record to replay from.");
+			}
+			int decks = block.get();
+			double penetration = block.getDouble();
+			int flags = block.get();
+			int pays = block.get();
+			int per = block.get();
+			int seats = block.get();
+			long bankroll = block.getLong();
+			long seed = block.getLong();
+
+			RecordedStrategy[] strategies = new RecordedStrategy[seats];
+			Player[] players = new Player[seats];
+			for (int i = 0; i < seats; i++) {
+				strategies[i] = new RecordedStrategy();
+				players[i] = new Player("Bot " + (i + 1), bankroll, strategies[i]);
+			}
+			TableRules rules = new TableRules(decks, penetration, (flags & EventWriter.HIT_SOFT_17) != 0, pays, per, (flags & EventWriter.DOUBLE_AFTER_SPLIT) != 0, (flags & EventWriter.RESPLIT_ACES) != 0, (flags & EventWriter.SURRENDER) != 0, seats);
+			Shoe shoe = rules.newShoe(new XoshiroRng(seed));
+			Blackjack table = new Blackjack(players, shoe, rules);
+			table.setHeadless(true);
+			shoe.shuffle();
+
+			Recorder recorder = new Recorder();
+			table.setListener(recorder);
+			Result result = new Result();
+
+			while (fill(1)) {
+				int length;
+				try {
+					length = roundLength();
+				} catch (IllegalArgumentException e) {
+					result.failedRound = table.getRound() + 1;
+					return result;
+				}
+				int start = block.position();
+
+				for (int i = 0; i < seats; i++) {
+					strategies[i].reset();
+				}
+				// A seat or play out of range is a corrupt log, reported as a round that does not match
+				for (int at = start; at < start + length; at += EventWriter.recordLength(block.get(at))) {
+					byte type = block.get(at);
+					if (type == EventWriter.BET || type == EventWriter.PLAY) {
+						int seat = block.get(at + 1);
+						int play = type == EventWriter.PLAY ? block.get(at + 2) : 0;
+						if (seat < 0 || seat >= seats || play < 0 || play >= plays.length) {
+							result.failedRound = table.getRound() + 1;
+							return result;
+						}
+						if (type == EventWriter.BET) {
+							strategies[seat].bet = block.getLong(at + 2);
+						} else {
+							strategies[seat].add(plays[play]);
+						}
+					}
+				}
+
+				for (int i = 0; i < seats; i++) {
+					players[i].setMoney(bankroll);
+				}
+				recorder.buffer.clear();
+				try {
+					table.playRound();
+				} catch (IllegalStateException | IllegalArgumentException e) {
+					result.failedRound = table.getRound();
+					return result;
+				}
+
+				recorder.buffer.flip();
+				ByteBuffer recorded = block.slice(start, length);
+				if (!recorder.buffer.equals(recorded)) {
+					result.failedRound = table.getRound();
+					return result;
+				}
+				block.position(start + length);
+				result.rounds++;
+			}
+			return result;
+		}
+	}
+
+	// Where a table's narration goes. Output.NONE switches narration off altogether.
+	public static interface Output {
+
+		public static final Output NONE = new NoOutput();
+
+		public void print(String text);
+
+		public void println(String text);
+
+		// Blocks until everything printed so far has been written out
+		public void flush();
+	}
+
+	public static class NoOutput implements Output {
+
+		public void print(String text) {}
+
+		public void println(String text) {}
+
+		public void flush() {}
+	}
+
+	public static class ConsoleOutput implements Output {
+
+		public void print(String text) {
+			System.out.print(text);
+		}
+
+		public void println(String text) {
+			System.out.println(text);
+		}
+
+		public void flush() {
+			System.out.flush();
+		}
+	}
+
+	// Collects the narration in memory; flush() writes it to the target stream, if there is one
+	public static class BufferedOutput implements Output {
+
+		private StringBuilder buffer = new StringBuilder();
+		private PrintStream target;
+
+		public BufferedOutput() {
+			this(null);
+		}
+
+		public BufferedOutput(PrintStream target) {
+			this.target = target;
+		}
+
+		public void print(String text) {
+			buffer.append(text);
+		}
+
+		public void println(String text) {
+			buffer.append(text).append('\n');
+		}
+
+		public void flush() {
+			if (target != null) {
+				target.print(buffer);
+				target.flush();
+				buffer.setLength(0);
+			}
+		}
+
+		public String contents() {
+			return buffer.toString();
+		}
+
+		public void clear() {
+			buffer.setLength(0);
+		}
+	}
+
+	// Hands text to a background thread through a bounded ring buffer. Producers only claim a slot
+	// and publish into it, so they never wait on the stream; when the ring is full the text is
+	// dropped and counted instead.
+	public static class AsyncOutput implements Output, Closeable {
+
+		private static final long IDLE_NANOS = 50000;
+
+		private AtomicReferenceArray<String> ring;
+		private int mask;
+		private AtomicLong tail = new AtomicLong();
+		private volatile long head;
+		private volatile long written;
+		private LongAdder dropped = new LongAdder();
+		private PrintStream target;
+		private Thread writer;
+		private volatile boolean closed;
+
+		public AsyncOutput(PrintStream target, int capacity) throws IllegalArgumentException {
+			if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+				throw new IllegalArgumentException("Capacity must be a power of two.");
+			}
+			ring = new AtomicReferenceArray<String>(capacity);
+			mask = capacity - 1;
+			this.target = target;
+			writer = new Thread(this::drain, "blackjack-output");
+			writer.setDaemon(true);
+			writer.start();
+		}
+
+		public void print(String text) {
+			long slot;
+			do {
+				slot = tail.get();
+				if (slot - head > mask) {
+					dropped.increment();
+					return;
+				}
+			} while (!tail.compareAndSet(slot, slot + 1));
+			ring.set((int) slot & mask, text);
+		}
+
+		public void println(String text) {
+			print(text + "\n");
+		}
+
+		public long dropped() {
+			return dropped.sum();
+		}
+
+		private void drain() {
+			StringBuilder batch = new StringBuilder();
+
+			while (!closed || head != tail.get()) {
+				long next = head;
+				int slot = (int) next & mask;
+				String text = ring.get(slot);
+
+				if (text == null) {
+					if (batch.length() > 0) {
+						target.print(batch);
+						batch.setLength(0);
+					}
+					target.flush();
+					written = next;
+					LockSupport.parkNanos(IDLE_NANOS);
+					continue;
+				}
+				ring.set(slot, null);
+				head = next + 1;
+				batch.append(text);
+				if (batch.length() > 1 << 16) {
+					target.print(batch);
+					batch.setLength(0);
+				}
+			}
+			target.print(batch);
+			target.flush();
+			written = head;
+		}
+
+		public void flush() {
+			long end = tail.get();
+			while (written < end && writer.isAlive()) {
+				LockSupport.parkNanos(IDLE_NANOS);
+			}
+		}
+
+		public void close() {
+			closed = true;
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// A Strategy fed from per-seat message queues instead of the console. The table's thread blocks on
+	// the queues, which is cheap on a virtual thread; the prompts queue tells the client what the
+	// table is waiting for. Like a console player, a seat is asked again when the table rejects its
+	// bet, and CLOSED is its last prompt once the table stops.
+	public static class Seat implements Strategy {
+
+		public static enum Prompt { BET, PLAY, CLOSED };
+
+		private BlockingQueue<Long> bets = new LinkedBlockingQueue<Long>();
+		private BlockingQueue<Play> plays = new LinkedBlockingQueue<Play>();
+		private BlockingQueue<Prompt> prompts = new LinkedBlockingQueue<Prompt>();
+		private volatile Player player;
+		private volatile Card dealerUpcard;
+		private volatile int allowed;
+
+		public void submitBet(long bet) {
+			bets.add(bet);
+		}
+
+		public void submitPlay(Play play) {
+			plays.add(play);
+		}
+
+		// Blocks until the table asks this seat for something
+		public Prompt nextPrompt() throws InterruptedException {
+			return prompts.take();
+		}
+
+		public Player getPlayer() {
+			return player;
+		}
+
+		public Card getDealerUpcard() {
+			return dealerUpcard;
+		}
+
+		public int getAllowed() {
+			return allowed;
+		}
+
+		public long placeBet(Player player) {
+			this.player = player;
+			prompts.add(Prompt.BET);
+			try {
+				return bets.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Table closed while waiting for a bet.");
+			}
+		}
+
+		public void close() {
+			prompts.add(Prompt.CLOSED);
+		}
+
+		public Play choosePlay(Player player, Card dealerUpcard, int allowed) {
+			this.player = player;
+			this.dealerUpcard = dealerUpcard;
+			this.allowed = allowed;
+			prompts.add(Prompt.PLAY);
+			try {
+				return plays.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Table closed while waiting for a play.");
+			}
+		}
+	}
+
+	// In-process stand-in for a remote player: answers a seat's prompts with a strategy
+	public static class SeatClient implements Runnable {
+
+		private Seat seat;
+		private Strategy strategy;
+
+		public SeatClient(Seat seat, Strategy strategy) {
+			this.seat = seat;
+			this.strategy = strategy;
+		}
+
+		public void run() {
+			try {
+				while (true) {
+					Seat.Prompt prompt = seat.nextPrompt();
+					if (prompt == Seat.Prompt.CLOSED) {
+						return;
+					} else if (prompt == Seat.Prompt.BET) {
+						// A stack below the strategy's bet goes all in rather than being asked again forever
+						Player player = seat.getPlayer();
+						seat.submitBet(Math.min(strategy.placeBet(player), player.getMoney()));
+					} else {
+						seat.submitPlay(strategy.choosePlay(seat.getPlayer(), seat.getDealerUpcard(), seat.getAllowed()));
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// Hosts many tables in one JVM, each playing its rounds on its own thread: a virtual thread when
+	// the runtime has them (Java 21+), a pooled platform thread otherwise.
+	public static class TableServer implements Closeable {
+
+		public static class HostedTable {
+
+			private int id;
+			private Blackjack table;
+			private Seat[] seats;
+			private Future<?> loop;
+
+			public int getId() {
+				return id;
+			}
+
+			public Seat getSeat(int seat) {
+				return seats[seat];
+			}
+
+			public int seats() {
+				return seats.length;
+			}
+
+			public long rounds() {
+				return table.getRound();
+			}
+
+			public boolean isRunning() {
+				return !loop.isDone();
+			}
+		}
+
+		private ExecutorService executor = newExecutor();
+		private Map<Integer, HostedTable> tables = new ConcurrentHashMap<Integer, HostedTable>();
+		private AtomicInteger ids = new AtomicInteger();
+		private Metrics metrics = new Metrics();
+		private ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(work -> {
+			Thread thread = new Thread(work, "metrics-flush");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		// Counts of tables between sampled rounds reach the metrics within a second
+		public TableServer() {
+			flusher.scheduleAtFixedRate(metrics::requestFlush, 1, 1, TimeUnit.SECONDS);
+		}
+
+		public static ExecutorService newExecutor() {
+			try {
+				return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException e) {
+				return Executors.newCachedThreadPool();
+			}
+		}
+
+		// Opens a table under the given rules that plays until every player is ruined or the server closes
+		public HostedTable open(int seats, TableRules rules, long bankroll) throws IllegalArgumentException {
+			HostedTable hosted = new HostedTable();
+			hosted.id = ids.incrementAndGet();
+			hosted.seats = new Seat[seats];
+			Player[] players = new Player[seats];
+			for (int i = 0; i < seats; i++) {
+				hosted.seats[i] = new Seat();
+				players[i] = new Player("Seat " + (i + 1), bankroll, hosted.seats[i]);
+			}
+			hosted.table = new Blackjack(players, rules.newShoe(new SplittableRng()), rules);
+			hosted.table.setHeadless(true);
+			hosted.table.setMetrics(metrics);
+
+			// The loop is set before the table is published and only runs once it is
+			FutureTask<Void> loop = new FutureTask<Void>(() -> {
+				try {
+					hosted.table.play();
+				} catch (IllegalStateException e) {
+					if (!Thread.currentThread().isInterrupted()) {
+						throw e;
+					}
+				} finally {
+					hosted.table.flushMetrics();
+					tables.remove(hosted.id);
+					for (int i = 0; i < seats; i++) {
+						hosted.seats[i].close();
+					}
+				}
+			}, null);
+			hosted.loop = loop;
+			tables.put(hosted.id, hosted);
+			executor.execute(loop);
+			return hosted;
+		}
+
+		public HostedTable get(int id) {
+			return tables.get(id);
+		}
+
+		public int size() {
+			return tables.size();
+		}
+
+		// Shared by every table the server opens
+		public Metrics getMetrics() {
+			return metrics;
+		}
+
+		// Runs work, such as a SeatClient, on the same kind of thread the tables use
+		public Future<?> submit(Runnable work) {
+			return executor.submit(work);
+		}
+
+		public void close() {
+			flusher.shutdownNow();
+			executor.shutdownNow();
+			try {
+				executor.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private Shoe deck;
+	private Dealer dealer;
+	private List<Player> players;
+	private List<Card> usedCards;
+	private boolean headless;
+	private Output out = new ConsoleOutput();
+	private boolean narrate = true;
+	private RoundListener listener;
+	private HouseTotals house;
+	private Statistics statistics;
+	private Metrics metrics;
+	private Metrics.Counts counts = new Metrics.Counts();
+	private long flushes;
+	private boolean timing;
+	private long phaseStart;
+	private long drawn;
+	// Written only by the thread playing the table, read by others such as TableServer
+	private volatile long round;
+	private boolean roundOpen;
+	private Phase phase = Phase.BETTING;
+	private int turn = -1;
+	private long turnCycles;
+
+	// The table rules, specialized once by the constructor
+	private final TableRules rules;
+	private final int softStand;
+	private final int blackjackPays;
+	private final int blackjackPer;
+	private final int firstPlays;
+	private final int splitPlays;
+	private final boolean resplitAces;
+
+	private static Scanner in = new Scanner(System.in);
+
+	public static enum Play {
+		HIT, STAND, DOUBLE, SPLIT, SURRENDER;
+
+		public int bit() {
+			return 1 << ordinal();
+		}
+
+		public boolean in(int mask) {
+			return (mask & bit()) != 0;
+		}
+	};
+
+	public static enum Phase { BETTING, DEALING, PLAYER_TURNS, DEALER_TURN, SETTLEMENT };
+
+	private static final int DRAW_PLAYS = Play.HIT.bit() | Play.STAND.bit();
+	private static final int RAISE_PLAYS = Play.DOUBLE.bit() | Play.SPLIT.bit();
+
+	// Standard rules dealt from the given shoe, such as a single Deck
+	public Blackjack(Player[] players, Shoe deck) throws IllegalArgumentException {
+		this(players, deck, TableRules.STANDARD.forShoe(deck));
+	}
+
+	// The shoe must be one the rules describe, as TableRules.newShoe() makes them
+	public Blackjack(Player[] players, Shoe deck, TableRules rules) throws IllegalArgumentException {
+		if (players.length < 1 || players.length > rules.getSeats()) {
+			throw new IllegalArgumentException("Number of players must be 1-" + rules.getSeats() + ".");
+		}
+		if (deck.getDecks() != rules.getDecks() || deck.getPenetration() != rules.getPenetration()) {
+			throw new IllegalArgumentException("The shoe (" + deck.getDecks() + " decks, " + Math.round(deck.getPenetration() * 100) + "% penetration) does not match the rules (" + rules + ").");
+		}
+		this.rules = rules;
+		softStand = rules.hitsSoft17() ? 18 : 17;
+		blackjackPays = rules.getBlackjackPays();
+		blackjackPer = rules.getBlackjackPer();
+		firstPlays = DRAW_PLAYS | RAISE_PLAYS | (rules.surrender() ? Play.SURRENDER.bit() : 0);
+		splitPlays = DRAW_PLAYS | Play.SPLIT.bit() | (rules.doubleAfterSplit() ? Play.DOUBLE.bit() : 0);
+		resplitAces = rules.resplitAces();
+
+		this.deck = deck;
+		dealer = new Dealer();
+		this.players = new ArrayList<Player>(Arrays.asList(players));
+		usedCards = new ArrayList<Card>();
+	}
+
+	// A headless table never waits for a keypress and every player must be automated. Going headless
+	// also silences the table; set an output afterwards to narrate anyway.
+	public void setHeadless(boolean headless) throws IllegalStateException {
+		if (headless) {
+			for (int i = 0; i < players.size(); i++) {
+				if (!players.get(i).isAutomated()) {
+					throw new IllegalStateException(players.get(i) + " needs a strategy to play on a headless table.");
+				}
+			}
+			setOutput(Output.NONE);
+		}
+		this.headless = headless;
+	}
+
+	// With Output.NONE the narration strings are never even built
+	public void setOutput(Output out) {
+		this.out.flush();
+		this.out = out;
+		narrate = out != Output.NONE;
+	}
+
+	public Output getOutput() {
+		return out;
+	}
+
+	public boolean isHeadless() {
+		return headless;
+	}
+
+	public TableRules getRules() {
+		return rules;
+	}
+
+	public void setListener(RoundListener listener) {
+		this.listener = listener;
+	}
+
+	// Totals to settle every round into, possibly shared with other tables
+	public void setHouse(HouseTotals house) {
+		this.house = house;
+	}
+
+	public void setStatistics(Statistics statistics) {
+		this.statistics = statistics;
+	}
+
+	public void setMetrics(Metrics metrics) {
+		flushMetrics();
+		this.metrics = metrics;
+		drawn = deck.getDrawn();
+	}
+
+	// Adds what the table counted since the last sampled round or flush request to the metrics
+	public void flushMetrics() {
+		if (metrics != null) {
+			metrics.add(counts);
+			flushes = metrics.getFlushes();
+		}
+		counts.clear();
+	}
+
+	// Safe to call from any thread
+	public long getRound() {
+		return round;
+	}
+
+	// Exactly what save() writes
+	private int snapshotSize() {
+		int rng = deck.getRng() instanceof XoshiroRng ? XoshiroRng.snapshotSize() : 0;
+		return 14 + deck.snapshotSize() + usedCards.size() + rng + 24 * players.size();
+	}
+
+	// Only between rounds, when the cards not in the shoe are all in usedCards and nobody has a bet
+	// out. The shoe's Rng is saved when it is a XoshiroRng; a SplittableRandom does not expose its
+	// state, so a restored table keeps whatever Rng its shoe has and carries on from a new stream.
+	private void save(ByteBuffer buffer) throws IllegalStateException {
+		if (phase != Phase.BETTING || roundOpen) {
+			throw new IllegalStateException("The table can only be saved between rounds.");
+		}
+		buffer.putLong(round);
+		deck.save(buffer);
+		buffer.putInt(usedCards.size());
+		for (int i = 0; i < usedCards.size(); i++) {
+			buffer.put(usedCards.get(i).code());
+		}
+
+		if (deck.getRng() instanceof XoshiroRng) {
+			buffer.put((byte) 1);
+			((XoshiroRng) deck.getRng()).save(buffer);
+		} else {
+			buffer.put((byte) 0);
+		}
+
+		buffer.put((byte) players.size());
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			buffer.putLong(player.getMoney()).putLong(player.getLedger().wagered).putLong(player.getLedger().returned);
+		}
+	}
+
+	private void restore(ByteBuffer buffer) throws IllegalStateException, IllegalArgumentException {
+		if (phase != Phase.BETTING || roundOpen) {
+			throw new IllegalStateException("The table can only be restored between rounds.");
+		}
+		check(buffer.duplicate());
+
+		round = buffer.getLong();
+		deck.restore(buffer);
+		int used = buffer.getInt();
+		usedCards.clear();
+		for (int i = 0; i < used; i++) {
+			usedCards.add(Card.of(buffer.get()));
+		}
+
+		if (buffer.get() == 1) {
+			if (!(deck.getRng() instanceof XoshiroRng)) {
+				deck.setRng(new XoshiroRng(0));
+			}
+			((XoshiroRng) deck.getRng()).restore(buffer);
+		}
+
+		buffer.get();
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			player.setMoney(buffer.getLong());
+			player.getLedger().wagered = buffer.getLong();
+			player.getLedger().returned = buffer.getLong();
+		}
+		drawn = deck.getDrawn();
+	}
+
+	// Goes through a saved table without changing anything, so a bad snapshot leaves the table as it
+	// was. Between the shoe and the used cards, every card must be there exactly once per deck.
+	private void check(ByteBuffer buffer) throws IllegalArgumentException {
+		int decks = deck.getDecks();
+		int[] counts = new int[Card.CODES];
+		buffer.getLong();
+		deck.check(buffer, counts);
+		int used = buffer.getInt();
+		if (used < 0 || used > 52 * decks) {
+			throw new IllegalArgumentException("Invalid number of used cards (" + used + ").");
+		}
+		for (int i = 0; i < used; i++) {
+			counts[Card.of(buffer.get()).code()]++;
+		}
+		for (int suit = 0; suit < 4; suit++) {
+			for (int rank = 1; rank <= 13; rank++) {
+				int count = counts[Card.encode(rank, suit)];
+				if (count != decks) {
+					throw new IllegalArgumentException("The snapshot holds " + count + " of " + Card.of(Card.encode(rank, suit)) + " instead of " + decks + ".");
+				}
+			}
+		}
+
+		int rng = buffer.get();
+		if (rng == 1) {
+			buffer.position(buffer.position() + 32);
+		} else if (rng != 0) {
+			throw new IllegalArgumentException("Invalid Rng kind (" + rng + ").");
+		}
+		if (buffer.get() != players.size()) {
+			throw new IllegalArgumentException("The snapshot is of a table with a different number of players.");
+		}
+		buffer.position(buffer.position() + 24 * players.size());
+	}
+
+	private boolean playersFinished() {
+		for (int i = 0; i < players.size(); i++) {
+			if (players.get(i).isPlaying()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void resetPlayersStates() {
+		for (int i = 0; i < players.size(); i++) {
+			players.get(i).startsTurn();
+		}
+		dealer.startsTurn();
+	}
+
+	private void feedDeckIfEmpty() {
+		if (deck.isEmpty()) {
+			if (narrate) {
+				say("\nShuffling new deck...\n");
+			}
+			resetDeck();
+		}
+	}
+
+	private void resetDeck() {
+		deck.add(usedCards);
+		deck.shuffle();
+		usedCards.clear();
+		if (listener != null) {
+			listener.shuffled();
+		}
+		if (metrics != null) {
+			counts.reshuffled();
+		}
+	}
+
+	private void placeBets() {
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+
+			if (player.getStrategy() instanceof Seat) {
+				// A remote player can lower a bet its stack no longer covers, so it is asked again
+				boolean betIsPossible = false;
+				do {
+					betIsPossible = submitBet(i, player.getStrategy().placeBet(player));
+				} while(!betIsPossible);
+			} else if (player.isAutomated()) {
+				long bet = player.getStrategy().placeBet(player);
+				if (!submitBet(i, bet)) {
+					throw new IllegalStateException(player + " placed an invalid bet (" + Money.format(bet) + ").");
+				}
+			} else {
+				boolean betIsPossible = false;
+				do {
+					out.print(player + ", place your bet: ");
+					out.flush();
+					long bet;
+					try {
+						bet = Money.parse(in.next());
+					} catch (NumberFormatException e) {
+						bet = 0;
+					}
+					betIsPossible = submitBet(i, bet);
+				} while(!betIsPossible);
+			}
+		}
+	}
+
+	private void dealCards() {
+		if (narrate) {
+			say("\nDealer dealing cards...\n");
+		}
+
+		for (int i = 0; i < 2*players.size(); i++) {
+			feedDeckIfEmpty();
+			Card card = deck.draw();
+			Player player = players.get(i % players.size());
+			player.hand().add(card);
+			if (listener != null) {
+				listener.cardDealt(i % players.size(), card.code());
+			}
+			if (narrate) {
+				say(player + " gets " + card);
+			}
+	
+			if ((i + 1) % players.size() == 0) {
+				feedDeckIfEmpty();
+				card = deck.draw();
+				if (narrate) {
+					if (i + 1 == players.size()) {
+						say(dealer + " gets " + card);
+					} else {
+						say(dealer + " gets a second card; face down");
+					}
+				}
+				dealer.hand().add(card);
+				if (listener != null) {
+					listener.cardDealt(RoundListener.DEALER, card.code());
+				}
+			}
+		}
+	}
+
+	private void printTurnsSummary() {
+		if (playersFinished()) {
+			say("Dealer's hand:\n" + dealer.hand());
+		} else {
+			say("Dealer's hand:\n" + dealer.initialHandString());
+		}
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+
+			for (int h = 0; h < player.hands(); h++) {
+				printHandSummary(player, h);
+			}
+			say("---------------");
+		}
+	}
+
+	private void printHandSummary(Player player, int h) {
+		Hand hand = player.hand(h);
+		String title = player.hands() == 1 ? "Current hand" : "Hand " + (h + 1);
+
+		say("\n< " + player + " >\n" + title + ":\n" + hand + "\nBet: " + Money.format(player.getBet(h)) + "\n");
+
+		switch(player.getState(h)) {
+			case PLAYING:
+				say("This player is still on the game.");
+				break;
+			case STAND:
+				say("This player chose to stand. Waiting for the end of the game.");
+				break;
+			case TWENTYONE:
+				say("This played got a score of 21.");
+				break;
+			case BLACKJACK:
+				say("This player got blackjack!");
+				break;
+			case BUSTED:
+				say("This player was busted!");
+				break;
+			case RETIRED:
+				say("This player has retired, will walk out of the game at the end with half bet back.");
+				break;
+		}
+	}
+
+	private void printPlayersMoney() {
+		say("Players' money:\n");
+
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			say(player + ": " + Money.format(player.getMoney()));
+		}
+	}
+
+	private void printPlayersHands() {
+		say("\n\n---------------\nPlayers' hands:\n");
+
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			say(player + ":\n" + player.hand());
+		}
+		say("---------------\n");
+	}
+
+	// Every hand is paid on its own; the listener gets one payout per seat with the total staked
+	private void payOutWins() {
+		if (narrate) {
+			say("\n------------- Players Payouts ---------------\n");
+		}
+
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			long money = player.getMoney();
+			long staked = 0;
+
+			for (int h = 0; h < player.hands(); h++) {
+				staked += player.getBet(h);
+				payOutHand(player, h);
+				if (statistics != null) {
+					statistics.handSettled(player.getState(h));
+				}
+				if (metrics != null) {
+					counts.handSettled(player.getState(h));
+				}
+			}
+
+			long paid = player.getMoney() - money;
+			if (statistics != null) {
+				statistics.seatSettled(paid - staked);
+			}
+			if (listener != null) {
+				listener.paidOut(i, staked, paid);
+			}
+			if (house != null) {
+				house.seatSettled(staked, paid);
+			}
+			if (narrate) {
+				say(player + "'s current money: " + Money.format(player.getMoney()) + "\n");
+			}
+		}
+		if (house != null) {
+			house.roundSettled();
+		}
+		if (statistics != null) {
+			statistics.dealerFinished(dealerOutcome());
+		}
+		if (metrics != null) {
+			counts.dealerFinished(dealerOutcome());
+			counts.roundSettled(deck.getDrawn() - drawn);
+			drawn = deck.getDrawn();
+		}
+
+		for (int i = 0; i < players.size(); i++) {
+			players.get(i).setBet(0);
+		}
+	}
+
+	private int dealerOutcome() {
+		if (dealer.hasBlackjack()) {
+			return DealerOdds.BLACKJACK;
+		}
+		return dealer.isBusted() ? DealerOdds.BUST : dealer.hand().value() - 17;
+	}
+
+	private void payOutHand(Player player, int h) {
+		long bet = player.getBet(h);
+		String name = player.hands() == 1 ? player.toString() : player + " (hand " + (h + 1) + ")";
+
+		if (dealer.hasBlackjack()) {
+			if (player.hand(h).isBlackjack()) {
+				player.collect(bet);
+				if (narrate) {
+					say("Both dealer and " + name + " have blackjacks, which results in a push. Player gets back " + Money.format(bet) + ".");
+				}
+			} else if (narrate) {
+				say("The dealer has blackjack, " + name + " loses bet (" + Money.format(bet) + ").");
+			}
+			return;
+		}
+
+		switch(player.getState(h)) {
+			case BLACKJACK:
+				long win = bet + Money.ratio(bet, blackjackPays, blackjackPer);
+				player.collect(win);
+				if (narrate) {
+					say(name + " has blackjack, gets paid at " + blackjackPays + ":" + blackjackPer + ", winning " + Money.format(win) + ".");
+				}
+				return;
+			case RETIRED:
+				player.collect(bet/2);
+				if (narrate) {
+					say(name + " surrendered, gets half the bet back (" + Money.format(bet/2) + ").");
+				}
+				return;
+			case BUSTED:
+				if (narrate) {
+					say(name + " got busted, loses bet (" + Money.format(bet) + ").");
+				}
+				return;
+		}
+
+		if (dealer.isBusted()) {
+			if (narrate) {
+				say("Dealer got busted, " + name + " gets paid at 1:1, winning " + Money.format(2*bet) + ".");
+			}
+			player.collect(2*bet);
+		} else {
+			int player_value = player.hand(h).value(), dealer_value = dealer.hand().value();
+
+			if (player_value > dealer_value) {
+				if (narrate) {
+					say(name + " has a higher scoring hand (" + player_value + ") than dealer's (" + dealer_value + ") , player gets paid at 1:1, winning " + Money.format(2*bet) + ".");
+				}
+				player.collect(2*bet);
+			} else if (player_value < dealer_value) {
+				if (narrate) {
+					say(name + " has a lower scoring hand (" + player_value + ") than dealer's (" + dealer_value + ") , player loses bet, " + Money.format(bet) + ".");
+				}
+			} else {
+				if (narrate) {
+					say(name + " has a the same scoring hand (" + player_value + ") than dealer's (" + dealer_value + ") , gets bet back, " + Money.format(bet) + ".");
+				}
+				player.collect(bet);
+			}
+		}
+	}
+
+	private void clearHands() {
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			for (int h = 0; h < player.hands(); h++) {
+				Hand hand = player.hand(h);
+				usedCards.addAll(hand.cards());
+				hand.clear();
+			}
+		}
+		usedCards.addAll(dealer.hand().cards());
+		dealer.hand().clear();
+	}
+
+	private void expelRuinedPlayers() {
+		for (Iterator<Player> iterator = players.iterator(); iterator.hasNext(); ) {
+			Player player = iterator.next();
+			if (player.getMoney() == 0) {
+				if (narrate) {
+					say(player + " has no money left and got kicked out of the game!");
+				}
+				iterator.remove();
+			}
+		}
+	}
+
+	private void pressAnyKeyToContinue() {
+		if (headless) {
+			return;
+		}
+		say("Press any key to continue...");
+		out.flush();
+		try {
+			System.in.read();
+		} catch(Exception e) {}
+	}
+
+	// Moves the turn to the next seat that still has to play, starting a new round of turns when
+	// every seat has had its go. Blackjacks are settled on the spot.
+	private void nextTurn() {
+		for (int seat = turn + 1; seat < players.size(); seat++) {
+			if (players.get(seat).isPlaying() && beginTurn(seat)) {
+				return;
+			}
+		}
+
+		if (turn >= 0) {
+			turnCycles++;
+			if (narrate) {
+				say("--------------- END OF ROUND OF TURNS --------------- \n");
+				say("\n----- SUMMARY -----\n");
+				printTurnsSummary();
+			}
+		}
+		if (playersFinished()) {
+			turn = -1;
+			enter(Phase.DEALER_TURN);
+			if (narrate) {
+				say("\n--------------------------------------\n");
+				say("\n\n<<<<<<<<<<<<<<< END OF ROUND >>>>>>>>>>>>>> \n");
+			}
+			return;
+		}
+
+		if (narrate) {
+			say("\n\n--------------- NEW ROUND OF TURNS ---------------");
+		}
+		turn = -1;
+		nextTurn();
+	}
+
+	// False if the seat's turn ended straight away with a blackjack
+	private boolean beginTurn(int seat) {
+		Player player = players.get(seat);
+		turn = seat;
+
+		feedDeckIfEmpty();
+
+		if (narrate) {
+			String title = player.hands() == 1 ? "'s hand" : "'s hand " + (player.currentHand() + 1) + " of " + player.hands();
+			say("\n< " + player + "'s turn > | Money " + Money.format(player.getMoney()) + " | Bet " + Money.format(player.getBet()));
+			say("\nDealer's hand:\n" + dealer.initialHandString() + "\n" + player + title + ":\n" + player.hand());
+		}
+
+		// Two cards to 21 after a split are not a blackjack
+		if (player.hands() == 1 && player.hand().isBlackjack()) {
+			player.blackjack();
+			if (narrate) {
+				say("\nYou have blackjack!!");
+				say("\n------------------------------");
+			}
+			return false;
+		}
+
+		if (narrate) {
+			say("Hand value: " + player.hand().valueString() + "\n");
+		}
+		return true;
+	}
+
+	private Card drawFor(int seat) {
+		feedDeckIfEmpty();
+		Card card = deck.draw();
+		players.get(seat).hand().add(card);
+		if (listener != null) {
+			listener.cardDealt(seat, card.code());
+		}
+		return card;
+	}
+
+	private void playTurn(int seat, Play play) {
+		Player player = players.get(seat);
+		Hand player_hand = player.hand();
+		Card card;
+
+		if (listener != null) {
+			listener.playChosen(seat, play);
+		}
+		if (narrate) {
+			say("");
+		}
+
+		switch(play) {
+			case HIT:
+				card = drawFor(seat);
+				if (narrate) {
+					say(player + " draws " + card + ".");
+					say("Resulting hand value: " + player_hand.valueString());
+				}
+				break;
+			case STAND:
+				if (narrate) {
+					say(player + " stands.");
+				}
+				player.stand();
+				break;
+			case DOUBLE:
+				player.doubleDown();
+				card = drawFor(seat);
+				if (narrate) {
+					say(player + " doubles bet and draws " + card + ".");
+					say("Resulting hand value: " + player_hand.valueString());
+				}
+				if (!player_hand.isBusted()) {
+					player.stand();
+				}
+				break;
+			case SPLIT:
+				player.split();
+				if (narrate) {
+					say(player + " splits hand.");
+				}
+				dealSplitCard(seat);
+				break;
+			case SURRENDER:
+				if (narrate) {
+					say(player + " gives up half the bet and retires from the game.");
+				}
+				player.surrender();
+				break;
+		}
+
+		if (player.isPlaying()) {
+			if (player_hand.isBusted()) {
+				player.busted();
+				if (narrate) {
+					say("\nYou have been busted!");
+				}
+			} else if (player_hand.value() == 21) {
+				player.twentyoneScore();
+				if (narrate) {
+					say("\nYou got a score of 21");
+				}
+			}
+		}
+		while (!player.isPlaying() && player.nextHand()) {
+			dealSplitCard(seat);
+		}
+		if (narrate) {
+			say("\n------------------------------");
+		}
+	}
+
+	// A split hand starts with one card and gets its second when it comes into play. Split aces take
+	// that one card and stand, unless it is another ace the rules let them split again.
+	private void dealSplitCard(int seat) {
+		Player player = players.get(seat);
+		Hand hand = player.hand();
+		Card card = drawFor(seat);
+
+		if (narrate) {
+			say(player + "'s hand " + (player.currentHand() + 1) + " gets " + card + ". Hand value: " + hand.valueString());
+		}
+		if (hand.cards().get(0).isAce()) {
+			if (!resplitAces || !card.isAce() || player.hands() == Player.MAX_HANDS) {
+				player.stand();
+			}
+		} else if (hand.value() == 21) {
+			player.twentyoneScore();
+		}
+	}
+
+	private void playDealer() {
+		Hand dealer_hand = dealer.hand();
+		if (narrate) {
+			say("\nDealer's hand:\n" + dealer_hand);
+		}
+
+		if (dealer_hand.isBlackjack()) {
+			dealer.blackjack();
+			if (narrate) {
+				say("\nThe dealer got blackjack!");
+			}
+		} else {
+			int hand_value = dealer_hand.value();
+
+			while (hand_value < (dealer_hand.isSoft() ? softStand : 17)) {
+				feedDeckIfEmpty();
+				Card card = deck.draw();
+				if (narrate) {
+					say(dealer + " draws " + card + ".");
+				}
+				dealer_hand.add(card);
+				if (listener != null) {
+					listener.dealerDrew(card.code());
+				}
+				hand_value = dealer_hand.value();
+			}
+			if (narrate) {
+				say("\nDealer's final hand:\n" + dealer_hand + "\nDealer's hand value: " + hand_value + "\n");
+			}
+
+			if (hand_value > 21) {
+				dealer.busted();
+				if (narrate) {
+					say("\nThe dealer got busted!");
+				}
+			} else if (hand_value == 21) {
+				dealer.twentyoneScore();
+				if (narrate) {
+					say("\nThe dealer got a score of 21.");
+				}
+			}
+		}
+	}
+
+	public Phase getPhase() {
+		return phase;
+	}
+
+	// Seat whose play the table is waiting for, or -1 outside PLAYER_TURNS
+	public int getTurn() {
+		return turn;
+	}
+
+	// Doubling, splitting and surrendering are only offered on the first two cards of a hand, as the
+	// rules allow, and when the player can cover them. Surrender is late: the dealer has already
+	// checked for blackjack by the time anyone plays.
+	public int allowedPlays(int seat) {
+		Player player = players.get(seat);
+		Hand hand = player.hand();
+
+		if (hand.size() != 2) {
+			return DRAW_PLAYS;
+		}
+		int allowed = player.hands() == 1 ? firstPlays : splitPlays;
+		if (player.getMoney() < player.getBet()) {
+			allowed &= ~RAISE_PLAYS;
+		}
+		if (player.hands() == Player.MAX_HANDS || hand.cards().get(0).points() != hand.cards().get(1).points()) {
+			allowed &= ~Play.SPLIT.bit();
+		}
+		// Split aces only play on when they may be split again
+		if (player.hands() > 1 && hand.cards().get(0).isAce()) {
+			allowed &= Play.STAND.bit() | Play.SPLIT.bit();
+		}
+		return allowed;
+	}
+
+	private void openRound() {
+		// Tables driven through submitBet() and advance() never call play(), which shuffles up front
+		if (!deck.isShuffled()) {
+			deck.shuffle();
+		}
+		roundOpen = true;
+		round++;
+		timing = metrics != null && metrics.sampled(round);
+		if (timing || metrics != null && metrics.getFlushes() != flushes) {
+			flushMetrics();
+		}
+		if (timing) {
+			phaseStart = System.nanoTime();
+		}
+		if (listener != null) {
+			listener.roundStarted(round);
+		}
+		if (narrate) {
+			say("\n\n--------------- NEW ROUND ---------------\n");
+			printPlayersMoney();
+			say("\nPlayers, place your bets!\n");
+		}
+		resetPlayersStates();
+	}
+
+	// Times the phase being left when the round is sampled
+	private void enter(Phase next) {
+		if (timing) {
+			long now = System.nanoTime();
+			metrics.phaseTimed(phase, now - phaseStart);
+			phaseStart = now;
+			timing = next != Phase.BETTING;
+		}
+		phase = next;
+	}
+
+	private void checkPhase(Phase expected) throws IllegalStateException {
+		if (phase != expected) {
+			throw new IllegalStateException("The table is not in the " + expected + " phase (" + phase + ").");
+		}
+	}
+
+	// False, with nothing changed, if the bet is not positive or the player cannot cover it
+	public boolean submitBet(int seat, long bet) throws IllegalStateException {
+		checkPhase(Phase.BETTING);
+		if (!roundOpen) {
+			openRound();
+		}
+		Player player = players.get(seat);
+		if (player.getBet() > 0) {
+			throw new IllegalStateException(player + " has already placed a bet.");
+		}
+
+		if (bet <= 0) {
+			if (narrate) {
+				say("Incorrect amount! Should be a possitive amount.");
+			}
+			return false;
+		} else if (!player.bet(bet)) {
+			if (narrate) {
+				say("Incorrect amount! You don't have that much money (max. " + Money.format(player.getMoney()) + ").");
+			}
+			return false;
+		}
+
+		player.setBet(bet);
+		if (listener != null) {
+			listener.betPlaced(seat, bet);
+		}
+		return true;
+	}
+
+	public void submitPlay(int seat, Play play) throws IllegalStateException, IllegalArgumentException {
+		checkPhase(Phase.PLAYER_TURNS);
+		if (seat != turn) {
+			throw new IllegalStateException("It is not " + players.get(seat) + "'s turn.");
+		}
+		if (play == null || !play.in(allowedPlays(seat))) {
+			throw new IllegalArgumentException(players.get(seat) + " chose a play the table does not accept (" + play + ").");
+		}
+		playTurn(seat, play);
+		nextTurn();
+	}
+
+	// Runs the current phase's step if it has everything it needs and returns whether the table moved
+	// on. Bets and plays come in through submitBet() and submitPlay(); nothing here ever blocks.
+	public boolean advance() {
+		switch(phase) {
+			case BETTING:
+				if (!roundOpen) {
+					openRound();
+				}
+				for (int i = 0; i < players.size(); i++) {
+					if (players.get(i).getBet() == 0) {
+						return false;
+					}
+				}
+				enter(Phase.DEALING);
+				return true;
+			case DEALING:
+				dealCards();
+				if (narrate) {
+					printPlayersHands();
+				}
+				turn = -1;
+				// The dealer peeks under a ten or an ace, and nobody plays against a blackjack
+				if (dealer.hand().isBlackjack()) {
+					if (narrate) {
+						say("The dealer checks the face down card...");
+					}
+					for (int i = 0; i < players.size(); i++) {
+						Player player = players.get(i);
+						if (player.hand().isBlackjack()) {
+							player.blackjack();
+						} else {
+							player.lostToDealerBlackjack();
+						}
+					}
+					enter(Phase.DEALER_TURN);
+					return true;
+				}
+				enter(Phase.PLAYER_TURNS);
+				nextTurn();
+				return true;
+			case PLAYER_TURNS:
+				return false;
+			case DEALER_TURN:
+				playDealer();
+				enter(Phase.SETTLEMENT);
+				return true;
+			case SETTLEMENT:
+				payOutWins();
+				clearHands();
+				if (deck.reachedCutCard()) {
+					resetDeck();
+				}
+				roundOpen = false;
+				enter(Phase.BETTING);
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	// Plays one full round through the phases, asking strategies or the console for bets and plays
+	public void playRound() throws IllegalStateException {
+		checkPhase(Phase.BETTING);
+		if (!roundOpen) {
+			openRound();
+		}
+
+		placeBets();
+		advance();
+		advance();
+		pressAnyKeyToContinue();
+
+		while (phase == Phase.PLAYER_TURNS) {
+			int seat = turn;
+			Player player = players.get(seat);
+			long cycles = turnCycles;
+
+			if (!player.isAutomated()) {
+				out.flush();
+			}
+			Play play = player.choosePlay(dealer.hand().cards().get(0), allowedPlays(seat), out);
+			submitPlay(seat, play);
+
+			pressAnyKeyToContinue();
+			if (turnCycles != cycles) {
+				pressAnyKeyToContinue();
+			}
+		}
+
+		advance();
+		advance();
+	}
+
+	public void play() {
+
+		if (narrate) {
+			say("\n\n#############################\n\n   WELCOME TO BLACKJACK 21\n\n#############################\n");
+		}
+
+		deck.shuffle();
+
+		while (!players.isEmpty()) {
+			playRound();
+			expelRuinedPlayers();
+			pressAnyKeyToContinue();
+		}
+		out.flush();
+	}
+
+	private <T> void say(T output) {
+		out.println(String.valueOf(output));
+	}
+
+	public static <T> void p(T output) {
+		System.out.println(output);
+
+	}
+
+	public static <T> void pnln(T output) {
+		System.out.print(output);
+	}
+
+	public static void main(String[] args) {
+
+		if (args.length > 1 && args[0].equals("record")) {
+			long rounds = args.length > 2 ? Long.parseLong(args[2]) : 1000000;
+			long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+			TableRules rules = TableRules.STANDARD;
+			Strategy[] strategies = { new BasicStrategy(rules, Money.of(10)) };
+			Simulator simulator = new Simulator(strategies, rules, rules.newShoe(new XoshiroRng(seed)), Money.of(1000));
+
+			try (EventLog log = new EventLog(Paths.get(args[1]))) {
+				log.tableOpened(rules, strategies.length, Money.of(1000), seed);
+				simulator.setListener(log);
+				long start = System.nanoTime();
+				simulator.run(rounds);
+				long elapsed = System.nanoTime() - start;
+				p(rounds + " rounds, " + log.length() + " bytes logged in " + elapsed / 1000000 + " ms");
+			} catch (IOException e) {
+				p("Could not write the event log: " + e.getMessage());
+			}
+			return;
+		}
+
+		if (args.length > 1 && args[0].equals("replay")) {
+			try {
+				long start = System.nanoTime();
+				Replay.Result result = Replay.verify(Paths.get(args[1]));
+				long elapsed = System.nanoTime() - start;
+				p(result + " (" + elapsed / 1000000 + " ms)");
+			} catch (IOException e) {
+				p("Could not replay the event log: " + e.getMessage());
+			}
+			return;
+		}
+
+		if (args.length > 0 && args[0].equals("serve")) {
+			int count = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+			long seconds = args.length > 2 ? Long.parseLong(args[2]) : 5;
+			int port = args.length > 3 ? Integer.parseInt(args[3]) : -1;
+
+			try (TableServer server = new TableServer()) {
+				HttpServer http = port < 0 ? null : server.getMetrics().serve(port);
+				List<TableServer.HostedTable> hosted = new ArrayList<TableServer.HostedTable>();
+				for (int i = 0; i < count; i++) {
+					TableServer.HostedTable table = server.open(1, TableRules.STANDARD, Money.of(Integer.MAX_VALUE));
+					server.submit(new SeatClient(table.getSeat(0), new BasicStrategy(TableRules.STANDARD, Money.of(10))));
+					hosted.add(table);
+				}
+				Thread.sleep(seconds * 1000);
+
+				long rounds = 0;
+				for (int i = 0; i < hosted.size(); i++) {
+					rounds += hosted.get(i).rounds();
+				}
+				p(server.size() + " tables running, " + rounds + " rounds played in " + seconds + " s");
+				p(server.getMetrics());
+				if (http != null) {
+					http.stop(0);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return;
+		}
+
+		if (args.length > 0 && args[0].equals("solve")) {
+			long rounds = args.length > 1 ? Long.parseLong(args[1]) : 0;
+			TableRules rules = TableRules.STANDARD;
+
+			long start = System.nanoTime();
+			StrategySolver solver = new StrategySolver(rules);
+			Chart chart = solver.solve();
+			long elapsed = System.nanoTime() - start;
+			p(chart);
+			p("Solved in " + elapsed / 1000000 + " ms");
+
+			if (rounds > 0) {
+				ParallelSimulator simulator = new ParallelSimulator(() -> new Strategy[] { chart.strategy(Money.of(10)) }, rules, Money.of(1000), new SplittableRng(), 256);
+				p("\nSolved chart:\n" + simulator.run(rounds));
+
+				StateCache cache = new StateCache(1 << 16);
+				simulator = new ParallelSimulator(() -> new Strategy[] { new CompositionStrategy(solver, cache, Money.of(10)) }, rules, Money.of(1000), new SplittableRng(), 256);
+				start = System.nanoTime();
+				SimulationResult result = simulator.run(rounds);
+				elapsed = System.nanoTime() - start;
+				p("\nComposition-dependent:\n" + result + "\n" + cache + "\nPlayed in " + elapsed / 1000000 + " ms");
+			}
+			return;
+		}
+
+		if (args.length > 1 && args[0].equals("converge")) {
+			double halfWidth = Double.parseDouble(args[1]);
+			long maxRounds = args.length > 2 ? Long.parseLong(args[2]) : 1000000000L;
+			Rng rng = args.length > 3 ? new XoshiroRng(Long.parseLong(args[3])) : new SplittableRng();
+			int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+			TableRules rules = TableRules.STANDARD;
+			ParallelSimulator simulator = new ParallelSimulator(() -> new Strategy[] { new BasicStrategy(rules, Money.of(10)) }, rules, Money.of(1000), rng, 256);
+
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			long start = System.nanoTime();
+			SimulationResult result = simulator.runUntil(halfWidth, 1000000, maxRounds, pool);
+			long elapsed = System.nanoTime() - start;
+			pool.shutdown();
+
+			p(result);
+			p("Stopped after " + result.getRounds() + " rounds in " + elapsed / 1000000 + " ms");
+			return;
+		}
+
+		if (args.length > 0 && args[0].equals("simulate")) {
+			long rounds = args.length > 1 ? Long.parseLong(args[1]) : 1000000;
+			Rng rng = args.length > 2 ? new XoshiroRng(Long.parseLong(args[2])) : new SplittableRng();
+			int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+			Path metrics = args.length > 4 ? Paths.get(args[4]) : null;
+			TableRules rules = TableRules.STANDARD;
+			ParallelSimulator simulator = new ParallelSimulator(() -> new Strategy[] { new BasicStrategy(rules, Money.of(10)) }, rules, Money.of(1000), rng, 256);
+
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			long start = System.nanoTime();
+			SimulationResult result = simulator.run(rounds, pool);
+			long elapsed = System.nanoTime() - start;
+			pool.shutdown();
+
+			p(result);
+			p(simulator.getHouse());
+			p(simulator.getMetrics());
+			p("Rounds per second: " + (long) (rounds / (elapsed / 1e9)));
+			if (metrics != null) {
+				try {
+					simulator.getMetrics().writePrometheus(metrics);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			return;
+		}
+
+		if (args.length > 2 && args[0].equals("checkpoint")) {
+			Path path = Paths.get(args[1]);
+			long rounds = Long.parseLong(args[2]);
+			long every = args.length > 3 ? Long.parseLong(args[3]) : 1000000;
+			long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+			TableRules rules = TableRules.STANDARD;
+			Simulator simulator = new Simulator(new Strategy[] { new BasicStrategy(rules, Money.of(10)) }, rules, rules.newShoe(new XoshiroRng(seed)), Money.of(1000));
+
+			try {
+				SimulationResult total = new SimulationResult();
+				if (Files.exists(path)) {
+					long start = System.nanoTime();
+					total = simulator.restore(path);
+					p("Resumed at round " + total.getRounds() + " in " + (System.nanoTime() - start) / 1000 + " us");
+				}
+				while (total.getRounds() < rounds) {
+					total.merge(simulator.run(Math.min(every, rounds - total.getRounds())));
+					simulator.checkpoint(total, path);
+				}
+				p(total);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return;
+		}
+
+		if (args.length > 0 && args[0].equals("batch")) {
+			long rounds = args.length > 1 ? Long.parseLong(args[1]) : 1000000;
+			Rng rng = args.length > 2 ? new XoshiroRng(Long.parseLong(args[2])) : new SplittableRng();
+			int lanes = args.length > 3 ? Integer.parseInt(args[3]) : 4096;
+			TableRules rules = TableRules.STANDARD;
+			BatchSimulator simulator = new BatchSimulator(rules, new BasicStrategy(rules, Money.of(10)), lanes, rng);
+
+			long start = System.nanoTime();
+			SimulationResult result = simulator.run(rounds);
+			long elapsed = System.nanoTime() - start;
+
+			p(result);
+			p("Rounds per second: " + (long) (result.getRounds() / (elapsed / 1e9)));
+			return;
+		}
+
+		Player player1, player2, player3;
+		player1 = new Player("Player 1", Money.of(500));
+
+		Player[] players = { player1 };
+		TableRules rules = TableRules.STANDARD;
+	
+		Blackjack blackjack = new Blackjack(players, rules.newShoe(new SplittableRng()), rules);
+
+		blackjack.play();
+	}
+}
@@ -0,0 +1,50 @@
+package blackjack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayTest {
+
+	private static final Blackjack.TableRules RULES = Blackjack.TableRules.STANDARD;
+	private static final long BANKROLL = Blackjack.Money.of(1000);
+
+	private static Path record(Path path, long rounds, long seed) throws IOException {
+		Blackjack.Strategy[] strategies = { new Blackjack.BasicStrategy(RULES, Blackjack.Money.of(10)) };
+		Blackjack.Simulator simulator = new Blackjack.Simulator(strategies, RULES, RULES.newShoe(new Blackjack.XoshiroRng(seed)), BANKROLL);
+		try (Blackjack.EventLog log = new Blackjack.EventLog(path)) {
+			log.tableOpened(RULES, strategies.length, BANKROLL, seed);
+			simulator.setListener(log);
+			simulator.run(rounds);
+		}
+		return path;
+	}
+
+	@Test
+	void recordedRoundsReplayIdentically(@TempDir Path dir) throws IOException {
+		Blackjack.Replay.Result result = Blackjack.Replay.verify(record(dir.resolve("log"), 2000, 17));
+		assertTrue(result.isVerified());
+		assertEquals(2000, result.getRounds());
+	}
+
+	@Test
+	void corruptRecordFailsItsRound(@TempDir Path dir) throws IOException {
+		Path path = record(dir.resolve("log"), 2000, 17);
+		byte[] bytes = Files.readAllBytes(path);
+		for (int i = bytes.length / 2; i < bytes.length / 2 + 16; i++) {
+			bytes[i] = (byte) 0xFF;
+		}
+		Files.write(path, bytes);
+
+		Blackjack.Replay.Result result = Blackjack.Replay.verify(path);
+		assertFalse(result.isVerified());
+		assertTrue(result.getFailedRound() > 0 && result.getFailedRound() <= 2000);
+	}
+}
@@ -0,0 +1,67 @@
+package blackjack;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ShoeTest {
+
+	@Test
+	void shuffleKeepsEveryCard() {
+		Blackjack.Shoe shoe = new Blackjack.Shoe(6, 0.75, new Blackjack.XoshiroRng(1));
+		assertFalse(shoe.isShuffled());
+		int[] before = shoe.composition();
+		shoe.shuffle();
+		assertTrue(shoe.isShuffled());
+		assertArrayEquals(before, shoe.composition());
+		assertEquals(6 * 52, shoe.remaining());
+	}
+
+	@Test
+	void sameSeedDealsTheSameCards() {
+		Blackjack.Shoe a = new Blackjack.Shoe(2, 0.75, new Blackjack.XoshiroRng(7));
+		Blackjack.Shoe b = new Blackjack.Shoe(2, 0.75, new Blackjack.XoshiroRng(7));
+		a.shuffle();
+		b.shuffle();
+		for (int i = 0; i < 2 * 52; i++) {
+			assertEquals(a.drawCode(), b.drawCode());
+		}
+		assertTrue(a.isEmpty());
+	}
+
+	@Test
+	void runningCountsReturnToZeroOnceEveryCardIsSeen() {
+		Blackjack.Shoe shoe = new Blackjack.Shoe(1, 0, new Blackjack.XoshiroRng(3));
+		shoe.shuffle();
+		while (!shoe.isEmpty()) {
+			shoe.drawCode();
+		}
+		assertEquals(0, shoe.runningCount(Blackjack.CountSystem.HI_LO));
+		assertEquals(0, shoe.runningCount(Blackjack.CountSystem.OMEGA_II));
+		assertEquals(4, shoe.runningCount(Blackjack.CountSystem.KO));
+	}
+
+	@Test
+	void cutCardComesOutAtThePenetration() {
+		Blackjack.Shoe shoe = new Blackjack.Shoe(1, 0.5, new Blackjack.XoshiroRng(5));
+		for (int i = 0; i < 25; i++) {
+			shoe.drawCode();
+			assertFalse(shoe.reachedCutCard());
+		}
+		shoe.drawCode();
+		assertTrue(shoe.reachedCutCard());
+	}
+
+	@Test
+	void drawingFromAnEmptyShoeFails() {
+		Blackjack.Shoe shoe = new Blackjack.Deck();
+		for (int i = 0; i < 52; i++) {
+			shoe.drawCode();
+		}
+		assertThrows(IllegalStateException.class, shoe::drawCode);
+	}
+}
@@ -0,0 +1,93 @@
+package blackjack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SimulatorTest {
+
+	private static final Blackjack.TableRules RULES = Blackjack.TableRules.STANDARD;
+	private static final long BET = Blackjack.Money.of(10);
+	private static final long BANKROLL = Blackjack.Money.of(1000);
+
+	private static Blackjack.Simulator simulator(long seed) {
+		Blackjack.Strategy[] strategies = { new Blackjack.BasicStrategy(RULES, BET), new Blackjack.MimicDealerStrategy(BET) };
+		return new Blackjack.Simulator(strategies, RULES, RULES.newShoe(new Blackjack.XoshiroRng(seed)), BANKROLL);
+	}
+
+	@Test
+	void seededRunsAreRepeatable() {
+		Blackjack.SimulationResult a = simulator(42).run(20000);
+		Blackjack.SimulationResult b = simulator(42).run(20000);
+		assertEquals(a.getNet(), b.getNet());
+		assertEquals(a.getHands(), b.getHands());
+		assertEquals(a.getWins() + a.getLosses() + a.getPushes(), a.getHands());
+	}
+
+	@Test
+	void settledHandsAreNeverStillPlaying() {
+		Blackjack.Statistics statistics = simulator(5).run(50000).getStatistics();
+		assertEquals(0, statistics.getHands(Blackjack.Player.State.PLAYING));
+		assertTrue(statistics.getHands(Blackjack.Player.State.DEALER_BLACKJACK) > 0);
+		// Two seats and no splits against a dealer blackjack
+		assertTrue(statistics.getHands(Blackjack.Player.State.DEALER_BLACKJACK) <= 2 * statistics.getDealerOutcomes(Blackjack.DealerOdds.BLACKJACK));
+	}
+
+	@Test
+	void resumingACheckpointMatchesAnUninterruptedRun(@TempDir Path dir) throws IOException {
+		Path path = dir.resolve("checkpoint");
+		Blackjack.Simulator first = simulator(9);
+		Blackjack.SimulationResult total = first.run(10000);
+		first.checkpoint(total, path);
+
+		Blackjack.Simulator resumed = simulator(1);
+		total = resumed.restore(path);
+		total.merge(resumed.run(10000));
+
+		Blackjack.SimulationResult straight = simulator(9).run(20000);
+		assertEquals(straight.getRounds(), total.getRounds());
+		assertEquals(straight.getNet(), total.getNet());
+		assertEquals(straight.getWins(), total.getWins());
+	}
+
+	@Test
+	void corruptCheckpointIsRejected(@TempDir Path dir) throws IOException {
+		Path path = dir.resolve("checkpoint");
+		Blackjack.Simulator simulator = simulator(9);
+		simulator.checkpoint(simulator.run(1000), path);
+
+		byte[] bytes = Files.readAllBytes(path);
+		bytes[bytes.length / 2] ^= 1;
+		Files.write(path, bytes);
+		assertThrows(IllegalArgumentException.class, () -> simulator(9).restore(path));
+	}
+
+	@Test
+	void parallelRunsDependOnTheSeedAndShardsOnly() {
+		Blackjack.ParallelSimulator a = new Blackjack.ParallelSimulator(() -> new Blackjack.Strategy[] { new Blackjack.BasicStrategy(RULES, BET) }, RULES, BANKROLL, new Blackjack.XoshiroRng(3), 8);
+		Blackjack.ParallelSimulator b = new Blackjack.ParallelSimulator(() -> new Blackjack.Strategy[] { new Blackjack.BasicStrategy(RULES, BET) }, RULES, BANKROLL, new Blackjack.XoshiroRng(3), 8);
+		ForkJoinPool one = new ForkJoinPool(1);
+		try {
+			assertEquals(a.run(40000).getNet(), b.run(40000, one).getNet());
+		} finally {
+			one.shutdown();
+		}
+	}
+
+	@Test
+	void batchSimulatorSettlesEveryHand() {
+		Blackjack.BatchSimulator batch = new Blackjack.BatchSimulator(RULES, new Blackjack.BasicStrategy(RULES, BET), 64, new Blackjack.XoshiroRng(4));
+		Blackjack.SimulationResult result = batch.run(64000);
+		assertEquals(64000, result.getRounds());
+		assertEquals(0, result.getStatistics().getHands(Blackjack.Player.State.PLAYING));
+		assertTrue(result.getStatistics().getHands(Blackjack.Player.State.DEALER_BLACKJACK) > 0);
+	}
+}
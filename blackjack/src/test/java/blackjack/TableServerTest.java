@@ -0,0 +1,36 @@
+package blackjack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TableServerTest {
+
+	private static final Blackjack.TableRules RULES = Blackjack.TableRules.STANDARD;
+
+	@Test
+	void seatBelowItsBetPlaysOnUntilRuined() throws Exception {
+		try (Blackjack.TableServer server = new Blackjack.TableServer()) {
+			Blackjack.TableServer.HostedTable table = server.open(1, RULES, Blackjack.Money.of(25));
+			Future<?> client = server.submit(new Blackjack.SeatClient(table.getSeat(0), new Blackjack.BasicStrategy(RULES, Blackjack.Money.of(10))));
+
+			// The client only returns once the table has stopped and closed its seats
+			client.get(30, TimeUnit.SECONDS);
+			assertEquals(0, table.getSeat(0).getPlayer().getMoney());
+			assertTrue(table.rounds() >= 3);
+		}
+	}
+
+	@Test
+	void openedTableIsRunningAsSoonAsItIsPublished() {
+		try (Blackjack.TableServer server = new Blackjack.TableServer()) {
+			Blackjack.TableServer.HostedTable table = server.open(2, RULES, Blackjack.Money.of(100));
+			assertTrue(server.get(table.getId()).isRunning());
+			assertEquals(2, table.seats());
+		}
+	}
+}
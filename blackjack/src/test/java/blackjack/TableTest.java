@@ -0,0 +1,76 @@
+package blackjack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TableTest {
+
+	private static final long BET = Blackjack.Money.of(10);
+
+	private static Blackjack.Player bot(long money) {
+		return new Blackjack.Player("Bot", money, new Blackjack.MimicDealerStrategy(BET));
+	}
+
+	@Test
+	void firstRoundOfANewShoeIsShuffled() {
+		Blackjack.Shoe shoe = Blackjack.TableRules.STANDARD.newShoe(new Blackjack.XoshiroRng(11));
+		Blackjack.Player player = bot(Blackjack.Money.of(100));
+		Blackjack table = new Blackjack(new Blackjack.Player[] { player }, shoe);
+		table.setHeadless(true);
+
+		assertTrue(table.submitBet(0, BET));
+		assertTrue(shoe.isShuffled());
+		assertTrue(table.advance());
+		assertTrue(table.advance());
+
+		Blackjack.Shoe factory = Blackjack.TableRules.STANDARD.newShoe(new Blackjack.XoshiroRng(11));
+		assertNotEquals(factory.drawCode(), player.hand().cards().get(0).code());
+	}
+
+	@Test
+	void rejectedBetChangesNothing() {
+		Blackjack.Player player = bot(Blackjack.Money.of(5));
+		Blackjack table = new Blackjack(new Blackjack.Player[] { player }, new Blackjack.Deck());
+		table.setHeadless(true);
+
+		assertFalse(table.submitBet(0, BET));
+		assertFalse(table.submitBet(0, 0));
+		assertEquals(Blackjack.Money.of(5), player.getMoney());
+		assertFalse(table.advance());
+		assertEquals(Blackjack.Phase.BETTING, table.getPhase());
+		assertTrue(table.submitBet(0, Blackjack.Money.of(5)));
+		assertTrue(table.advance());
+		assertEquals(Blackjack.Phase.DEALING, table.getPhase());
+	}
+
+	@Test
+	void playsAreOnlyTakenInTurn() {
+		Blackjack table = new Blackjack(new Blackjack.Player[] { bot(Blackjack.Money.of(100)) }, new Blackjack.Deck());
+		table.setHeadless(true);
+		assertThrows(IllegalStateException.class, () -> table.submitPlay(0, Blackjack.Play.STAND));
+	}
+
+	@Test
+	void shortConstructorTakesDecksFromTheShoe() {
+		Blackjack table = new Blackjack(new Blackjack.Player[] { bot(Blackjack.Money.of(100)) }, new Blackjack.Shoe(8, 0.8));
+		assertEquals(8, table.getRules().getDecks());
+		assertEquals(Blackjack.TableRules.STANDARD.getBlackjackPays(), table.getRules().getBlackjackPays());
+	}
+
+	@Test
+	void shoeMustMatchTheRules() {
+		Blackjack.Player[] players = { bot(Blackjack.Money.of(100)) };
+		assertThrows(IllegalArgumentException.class, () -> new Blackjack(players, new Blackjack.Deck(), Blackjack.TableRules.STANDARD));
+	}
+
+	@Test
+	void headlessTableNeedsAutomatedPlayers() {
+		Blackjack table = new Blackjack(new Blackjack.Player[] { new Blackjack.Player("Human", Blackjack.Money.of(100)) }, new Blackjack.Deck());
+		assertThrows(IllegalStateException.class, () -> table.setHeadless(true));
+	}
+}